@@ -45,10 +45,16 @@ public class AbstractTransformation implements Transformation {
 		return false;
 	}
 
+	/**
+	 * <p>
+	 * Transformations name output fields, which are not scoped to an encoder.
+	 * The name is instantiated directly, rather than via {@link FieldName#create(String)}.
+	 * </p>
+	 */
 	static
 	protected FieldName withPrefix(FieldName name, String prefix){
 		String value = name.getValue();
 
-		return FieldName.create(prefix + (value.substring(0, 1)).toUpperCase() + value.substring(1));
+		return new FieldName(prefix + (value.substring(0, 1)).toUpperCase() + value.substring(1));
 	}
 }
\ No newline at end of file
@@ -22,7 +22,6 @@ import java.util.Objects;
 
 import com.google.common.base.Objects.ToStringHelper;
 import org.dmg.pmml.DataType;
-import org.dmg.pmml.DerivedField;
 import org.dmg.pmml.Field;
 import org.dmg.pmml.FieldName;
 import org.dmg.pmml.NormDiscrete;
@@ -49,28 +48,31 @@ public class BinaryFeature extends Feature implements HasDerivedName {
 
 	@Override
 	public FieldName getDerivedName(){
-		return FieldName.create((getName()).getValue() + "=" + getValue());
+		return FeatureUtil.createName(getEncoder(), (getName()).getValue() + "=" + getValue());
 	}
 
 	@Override
 	public ContinuousFeature toContinuousFeature(){
 		PMMLEncoder encoder = ensureEncoder();
 
+		return encoder.getContinuousFeature(this, null, () -> encodeContinuousFeature(encoder));
+	}
+
+	private ContinuousFeature encodeContinuousFeature(PMMLEncoder encoder){
 		FieldName derivedName = getDerivedName();
 
-		DerivedField derivedField = encoder.getDerivedField(derivedName);
-		if(derivedField == null){
-			NormDiscrete normDiscrete = new NormDiscrete(getName(), getValue());
+		encoder.declareDerivedField(derivedName, OpType.CONTINUOUS, DataType.DOUBLE, () -> {
+			FeatureUtil.addReference(this);
 
-			derivedField = encoder.createDerivedField(derivedName, OpType.CONTINUOUS, DataType.DOUBLE, normDiscrete);
-		}
+			return new NormDiscrete(getName(), getValue());
+		});
 
-		return new ContinuousFeature(encoder, derivedField);
+		return new ContinuousFeature(encoder, derivedName, DataType.DOUBLE);
 	}
 
 	@Override
-	public int hashCode(){
-		return (31 * super.hashCode()) + Objects.hashCode(this.getValue());
+	protected int computeHashCode(){
+		return (31 * super.computeHashCode()) + Objects.hashCode(this.getValue());
 	}
 
 	@Override
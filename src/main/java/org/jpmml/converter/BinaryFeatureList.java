@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.FieldName;
+
+/**
+ * <p>
+ * A lazy one-hot encoding view of a categorical feature.
+ * </p>
+ *
+ * <p>
+ * Binary features are created on access.
+ * Utility classes that are aware of this view (eg. {@link org.jpmml.converter.regression.RegressionModelUtil})
+ * do not create them at all, also when the view is a part of a {@link CompositeFeatureList}.
+ * </p>
+ *
+ * @see CategoricalFeature#getBinaryFeatures()
+ */
+public class BinaryFeatureList extends AbstractList<BinaryFeature> implements RandomAccess, HasBinaryFeatures {
+
+	private CategoricalFeature categoricalFeature = null;
+
+
+	public BinaryFeatureList(CategoricalFeature categoricalFeature){
+		setCategoricalFeature(categoricalFeature);
+	}
+
+	@Override
+	public int size(){
+		List<String> values = getValues();
+
+		return values.size();
+	}
+
+	@Override
+	public BinaryFeature get(int index){
+		CategoricalFeature categoricalFeature = getCategoricalFeature();
+
+		return new BinaryFeature(categoricalFeature.getEncoder(), categoricalFeature.getName(), categoricalFeature.getDataType(), getValue(index));
+	}
+
+	public PMMLEncoder getEncoder(){
+		CategoricalFeature categoricalFeature = getCategoricalFeature();
+
+		return categoricalFeature.getEncoder();
+	}
+
+	public FieldName getName(){
+		CategoricalFeature categoricalFeature = getCategoricalFeature();
+
+		return categoricalFeature.getName();
+	}
+
+	public DataType getDataType(){
+		CategoricalFeature categoricalFeature = getCategoricalFeature();
+
+		return categoricalFeature.getDataType();
+	}
+
+	@Override
+	public CategoricalFeature getCategoricalFeature(int index){
+
+		if(index < 0 || index >= size()){
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+
+		return getCategoricalFeature();
+	}
+
+	@Override
+	public String getValue(int index){
+		CategoricalFeature categoricalFeature = getCategoricalFeature();
+
+		return categoricalFeature.getValue(index);
+	}
+
+	public List<String> getValues(){
+		CategoricalFeature categoricalFeature = getCategoricalFeature();
+
+		return categoricalFeature.getValues();
+	}
+
+	public CategoricalFeature getCategoricalFeature(){
+		return this.categoricalFeature;
+	}
+
+	private void setCategoricalFeature(CategoricalFeature categoricalFeature){
+
+		if(categoricalFeature == null){
+			throw new IllegalArgumentException();
+		}
+
+		this.categoricalFeature = categoricalFeature;
+	}
+}
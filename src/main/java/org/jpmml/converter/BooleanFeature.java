@@ -21,7 +21,6 @@ package org.jpmml.converter;
 import java.util.Arrays;
 
 import org.dmg.pmml.DataType;
-import org.dmg.pmml.DerivedField;
 import org.dmg.pmml.Field;
 import org.dmg.pmml.FieldName;
 import org.dmg.pmml.NormDiscrete;
@@ -30,27 +29,34 @@ import org.dmg.pmml.OpType;
 public class BooleanFeature extends CategoricalFeature implements HasDerivedName {
 
 	public BooleanFeature(PMMLEncoder encoder, Field<?> field){
-		super(encoder, field, Arrays.asList("false", "true"));
+		this(encoder, field.getName(), field.getDataType());
+	}
+
+	public BooleanFeature(PMMLEncoder encoder, FieldName name, DataType dataType){
+		super(encoder, name, dataType, Arrays.asList("false", "true"));
 	}
 
 	@Override
 	public FieldName getDerivedName(){
-		return FieldName.create((getName()).getValue() + "=true");
+		return FeatureUtil.createName(getEncoder(), (getName()).getValue() + "=true");
 	}
 
 	@Override
 	public ContinuousFeature toContinuousFeature(){
 		PMMLEncoder encoder = ensureEncoder();
 
+		return encoder.getContinuousFeature(this, null, () -> encodeContinuousFeature(encoder));
+	}
+
+	private ContinuousFeature encodeContinuousFeature(PMMLEncoder encoder){
 		FieldName derivedName = getDerivedName();
 
-		DerivedField derivedField = encoder.getDerivedField(derivedName);
-		if(derivedField == null){
-			NormDiscrete normDiscrete = new NormDiscrete(getName(), "true");
+		encoder.declareDerivedField(derivedName, OpType.CONTINUOUS, DataType.DOUBLE, () -> {
+			FeatureUtil.addReference(this);
 
-			derivedField = encoder.createDerivedField(derivedName, OpType.CONTINUOUS, DataType.DOUBLE, normDiscrete);
-		}
+			return new NormDiscrete(getName(), "true");
+		});
 
-		return new ContinuousFeature(encoder, derivedField);
+		return new ContinuousFeature(encoder, derivedName, DataType.DOUBLE);
 	}
 }
\ No newline at end of file
@@ -26,6 +26,22 @@ public class CMatrixUtil extends MatrixUtil {
 	private CMatrixUtil(){
 	}
 
+	/**
+	 * @param values A row-major matrix.
+	 */
+	static
+	public DoubleList getColumn(DoubleList values, int rows, int columns, int index){
+		validateSize(values, rows, columns);
+
+		double[] result = new double[rows];
+
+		for(int row = 0; row < rows; row++){
+			result[row] = values.getDouble((row * columns) + index);
+		}
+
+		return new DoubleList(result);
+	}
+
 	/**
 	 * @param values A row-major matrix.
 	 */
@@ -73,8 +73,8 @@ public class CategoricalFeature extends Feature {
 	}
 
 	@Override
-	public int hashCode(){
-		return (31 * super.hashCode()) + Objects.hashCode(this.getValues());
+	protected int computeHashCode(){
+		return (31 * super.computeHashCode()) + Objects.hashCode(this.getValues());
 	}
 
 	@Override
@@ -101,6 +101,15 @@ public class CategoricalFeature extends Feature {
 		return values.get(index);
 	}
 
+	/**
+	 * <p>
+	 * Gets the one-hot encoding of this feature as a lazy list of binary features.
+	 * </p>
+	 */
+	public BinaryFeatureList getBinaryFeatures(){
+		return new BinaryFeatureList(this);
+	}
+
 	public List<String> getValues(){
 		return this.values;
 	}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.FieldName;
+
+/**
+ * <p>
+ * A feature list for very wide feature spaces.
+ * </p>
+ *
+ * <p>
+ * Features are stored column-wise in primitive arrays (name ids, data type codes, feature kinds and value ids),
+ * and are materialized as {@link Feature} objects on demand.
+ * Feature names and category values are stored once, no matter how many features refer to them.
+ * For example, a one-hot encoded column costs a few bytes, instead of a {@link BinaryFeature} object.
+ * </p>
+ *
+ * <p>
+ * Materialized features are interned weakly.
+ * Repeated calls to {@link #get(int)} return the same feature object for as long as it is reachable from elsewhere,
+ * so that identity-based caches (eg. {@link PMMLEncoder}'s continuous feature cache) keep hitting.
+ * Features compare equal by value, so the list can be used with existing converters via {@link Schema#Schema(Label, List)}.
+ * </p>
+ */
+public class ColumnarFeatureList extends AbstractList<Feature> implements RandomAccess {
+
+	private PMMLEncoder encoder = null;
+
+	private int size = 0;
+
+	private int[] nameIds = new int[16];
+
+	private byte[] dataTypes = new byte[16];
+
+	private byte[] kinds = new byte[16];
+
+	private int[] valueIds = new int[16];
+
+	private List<FieldName> names = new ArrayList<>();
+
+	private Map<FieldName, Integer> nameIndex = new HashMap<>();
+
+	private List<String> values = new ArrayList<>();
+
+	private Map<String, Integer> valueIndex = new HashMap<>();
+
+	private List<List<String>> valueLists = new ArrayList<>();
+
+	private Map<List<String>, Integer> valueListIndex = new HashMap<>();
+
+	private List<Feature> objects = new ArrayList<>();
+
+	private Interner<Feature> interner = Interners.newWeakInterner();
+
+
+	public ColumnarFeatureList(PMMLEncoder encoder){
+		this.encoder = encoder;
+	}
+
+	@Override
+	public int size(){
+		return this.size;
+	}
+
+	@Override
+	public Feature get(int index){
+
+		if(index < 0 || index >= this.size){
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+
+		PMMLEncoder encoder = getEncoder();
+
+		FieldName name = this.names.get(this.nameIds[index]);
+		DataType dataType = ColumnarFeatureList.DATATYPES[this.dataTypes[index]];
+
+		Feature feature;
+
+		switch(this.kinds[index]){
+			case ColumnarFeatureList.KIND_CONTINUOUS:
+				feature = new ContinuousFeature(encoder, name, dataType);
+				break;
+			case ColumnarFeatureList.KIND_BINARY:
+				feature = new BinaryFeature(encoder, name, dataType, this.values.get(this.valueIds[index]));
+				break;
+			case ColumnarFeatureList.KIND_BOOLEAN:
+				feature = new BooleanFeature(encoder, name, dataType);
+				break;
+			case ColumnarFeatureList.KIND_CATEGORICAL:
+				feature = new CategoricalFeature(encoder, name, dataType, this.valueLists.get(this.valueIds[index]));
+				break;
+			case ColumnarFeatureList.KIND_OBJECT:
+				return this.objects.get(this.valueIds[index]);
+			default:
+				throw new IllegalStateException();
+		}
+
+		return this.interner.intern(feature);
+	}
+
+	/**
+	 * <p>
+	 * Appends a feature.
+	 * Continuous, binary, boolean and categorical features (exact classes only) are stored column-wise.
+	 * Other features are stored as-is.
+	 * </p>
+	 */
+	@Override
+	public boolean add(Feature feature){
+		Class<? extends Feature> clazz = feature.getClass();
+
+		if(feature.getEncoder() != getEncoder()){
+			addObject(feature);
+
+			return true;
+		} // End if
+
+		if((ContinuousFeature.class).equals(clazz)){
+			addContinuous(feature.getName(), feature.getDataType());
+		} else
+
+		if((BinaryFeature.class).equals(clazz)){
+			BinaryFeature binaryFeature = (BinaryFeature)feature;
+
+			addBinary(binaryFeature.getName(), binaryFeature.getDataType(), binaryFeature.getValue());
+		} else
+
+		if((BooleanFeature.class).equals(clazz)){
+			addBoolean(feature.getName(), feature.getDataType());
+		} else
+
+		if((CategoricalFeature.class).equals(clazz)){
+			CategoricalFeature categoricalFeature = (CategoricalFeature)feature;
+
+			addCategorical(categoricalFeature.getName(), categoricalFeature.getDataType(), categoricalFeature.getValues());
+		} else
+
+		{
+			addObject(feature);
+		}
+
+		return true;
+	}
+
+	public void addContinuous(FieldName name, DataType dataType){
+		append(ColumnarFeatureList.KIND_CONTINUOUS, name, dataType, -1);
+	}
+
+	public void addBinary(FieldName name, DataType dataType, String value){
+		append(ColumnarFeatureList.KIND_BINARY, name, dataType, intern(this.values, this.valueIndex, value));
+	}
+
+	public void addBoolean(FieldName name, DataType dataType){
+		append(ColumnarFeatureList.KIND_BOOLEAN, name, dataType, -1);
+	}
+
+	public void addCategorical(FieldName name, DataType dataType, List<String> values){
+		append(ColumnarFeatureList.KIND_CATEGORICAL, name, dataType, intern(this.valueLists, this.valueListIndex, values));
+	}
+
+	private void addObject(Feature feature){
+		this.objects.add(feature);
+
+		append(ColumnarFeatureList.KIND_OBJECT, feature.getName(), feature.getDataType(), this.objects.size() - 1);
+	}
+
+	/**
+	 * <p>
+	 * Trims the capacity of the backing arrays to the current size.
+	 * </p>
+	 */
+	public void trimToSize(){
+		resize(this.size);
+	}
+
+	private void append(byte kind, FieldName name, DataType dataType, int valueId){
+
+		if(name == null || dataType == null){
+			throw new IllegalArgumentException();
+		} // End if
+
+		if(this.size == this.kinds.length){
+			resize(Math.max(16, this.size + (this.size >> 1)));
+		}
+
+		int index = this.size;
+
+		this.nameIds[index] = intern(this.names, this.nameIndex, name);
+		this.dataTypes[index] = (byte)dataType.ordinal();
+		this.kinds[index] = kind;
+		this.valueIds[index] = valueId;
+
+		this.size++;
+
+		this.modCount++;
+	}
+
+	private void resize(int capacity){
+		this.nameIds = Arrays.copyOf(this.nameIds, capacity);
+		this.dataTypes = Arrays.copyOf(this.dataTypes, capacity);
+		this.kinds = Arrays.copyOf(this.kinds, capacity);
+		this.valueIds = Arrays.copyOf(this.valueIds, capacity);
+	}
+
+	public PMMLEncoder getEncoder(){
+		return this.encoder;
+	}
+
+	static
+	private <E> int intern(List<E> list, Map<E, Integer> index, E value){
+		Integer id = index.get(value);
+
+		if(id == null){
+			id = list.size();
+
+			list.add(value);
+			index.put(value, id);
+		}
+
+		return id;
+	}
+
+	private static final DataType[] DATATYPES = DataType.values();
+
+	private static final byte KIND_CONTINUOUS = 0;
+	private static final byte KIND_BINARY = 1;
+	private static final byte KIND_BOOLEAN = 2;
+	private static final byte KIND_CATEGORICAL = 3;
+	private static final byte KIND_OBJECT = 4;
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * A read-only view that concatenates feature lists.
+ * </p>
+ *
+ * <p>
+ * Runs of binary features that come from {@link HasBinaryFeatures} lists (eg. {@link BinaryFeatureList})
+ * remain visible as such, so that utility classes can encode them without creating binary feature objects.
+ * </p>
+ */
+public class CompositeFeatureList extends AbstractList<Feature> implements RandomAccess, HasBinaryFeatures {
+
+	private List<List<? extends Feature>> parts = null;
+
+	private int[] offsets = null;
+
+
+	public CompositeFeatureList(List<? extends List<? extends Feature>> parts){
+
+		if(parts == null){
+			throw new IllegalArgumentException();
+		}
+
+		this.parts = new ArrayList<>(parts);
+		this.offsets = new int[parts.size() + 1];
+
+		for(int i = 0; i < parts.size(); i++){
+			List<? extends Feature> part = parts.get(i);
+
+			this.offsets[i + 1] = this.offsets[i] + part.size();
+		}
+	}
+
+	@Override
+	public int size(){
+		return this.offsets[this.offsets.length - 1];
+	}
+
+	@Override
+	public Feature get(int index){
+		int part = getPart(index);
+
+		return (this.parts.get(part)).get(index - this.offsets[part]);
+	}
+
+	@Override
+	public CategoricalFeature getCategoricalFeature(int index){
+		int part = getPart(index);
+
+		List<? extends Feature> features = this.parts.get(part);
+
+		if(features instanceof HasBinaryFeatures){
+			HasBinaryFeatures binaryFeatures = (HasBinaryFeatures)features;
+
+			return binaryFeatures.getCategoricalFeature(index - this.offsets[part]);
+		}
+
+		return null;
+	}
+
+	@Override
+	public String getValue(int index){
+		int part = getPart(index);
+
+		List<? extends Feature> features = this.parts.get(part);
+
+		if(features instanceof HasBinaryFeatures){
+			HasBinaryFeatures binaryFeatures = (HasBinaryFeatures)features;
+
+			return binaryFeatures.getValue(index - this.offsets[part]);
+		}
+
+		throw new IllegalArgumentException();
+	}
+
+	private int getPart(int index){
+
+		if(index < 0 || index >= size()){
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+
+		int part = Arrays.binarySearch(this.offsets, index);
+
+		// Skip over empty parts
+		if(part >= 0){
+
+			while(this.offsets[part + 1] == index){
+				part++;
+			}
+
+			return part;
+		}
+
+		return -(part + 1) - 1;
+	}
+}
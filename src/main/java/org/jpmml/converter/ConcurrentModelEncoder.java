@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multiset;
+import org.dmg.pmml.Apply;
+import org.dmg.pmml.DataField;
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.DefineFunction;
+import org.dmg.pmml.DerivedField;
+import org.dmg.pmml.Expression;
+import org.dmg.pmml.Field;
+import org.dmg.pmml.FieldName;
+import org.dmg.pmml.OpType;
+import org.dmg.pmml.PMML;
+import org.dmg.pmml.TransformationDictionary;
+import org.dmg.pmml.UnivariateStats;
+import org.dmg.pmml.Visitor;
+import org.dmg.pmml.VisitorAction;
+import org.jpmml.model.visitors.AbstractVisitor;
+
+/**
+ * <p>
+ * A model encoder that can be shared between threads, for example when converting the member models of an ensemble in parallel.
+ * </p>
+ *
+ * <p>
+ * Derived fields are created atomically by {@link #ensureDerivedField(FieldName, OpType, DataType, Supplier)}.
+ * The expression is built outside of the lock, so competing threads may build it more than once, but only one of them wins.
+ * Derived field declarations are materialized while holding the lock.
+ * </p>
+ *
+ * <p>
+ * Derived fields and define functions are encoded in topological order (every field or function is defined before its first use),
+ * with ties broken by the lexicographic order of their names, so that the result does not depend on thread scheduling.
+ * This differs from {@link ModelEncoder}, which encodes them in the order of their creation.
+ * The two encoders produce the same derived fields and define functions for the same conversion, but may list them in a different order.
+ * Data fields are encoded in the order of their declaration, so they should be declared before the parallel section begins.
+ * </p>
+ *
+ * <p>
+ * Structurally identical derived fields are collapsed into the one with the lexicographically lowest name,
+ * so the choice does not depend on thread scheduling either.
+ * </p>
+ */
+public class ConcurrentModelEncoder extends ModelEncoder {
+
+	public ConcurrentModelEncoder(){
+		this(Collections.synchronizedMap(new LinkedHashMap<FieldName, DataField>()), new ConcurrentHashMap<FieldName, DerivedField>(), new ConcurrentHashMap<String, DefineFunction>(), ConcurrentHashMultiset.<FieldName>create(), new ConcurrentHashMap<FieldName, List<Decorator>>(), new ConcurrentHashMap<FieldName, UnivariateStats>());
+	}
+
+	protected ConcurrentModelEncoder(Map<FieldName, DataField> dataFields, Map<FieldName, DerivedField> derivedFields, Map<String, DefineFunction> defineFunctions, Multiset<FieldName> references, Map<FieldName, List<Decorator>> decorators, Map<FieldName, UnivariateStats> univariateStats){
+		super(dataFields, derivedFields, defineFunctions, references, decorators, univariateStats);
+	}
+
+	@Override
+	public boolean isThreadSafe(){
+		return true;
+	}
+
+	@Override
+	public PMML encodePMML(){
+		PMML pmml = super.encodePMML();
+
+		TransformationDictionary transformationDictionary = pmml.getTransformationDictionary();
+		if(transformationDictionary != null){
+
+			if(transformationDictionary.hasDerivedFields()){
+				List<DerivedField> derivedFields = transformationDictionary.getDerivedFields();
+
+				List<DerivedField> sortedDerivedFields = sortTopologically(derivedFields, derivedField -> (derivedField.getName()).getValue(), ConcurrentModelEncoder::getFieldDependencies, ConcurrentModelEncoder.DERIVEDFIELD_COMPARATOR);
+
+				derivedFields.clear();
+				derivedFields.addAll(sortedDerivedFields);
+			} // End if
+
+			if(transformationDictionary.hasDefineFunctions()){
+				List<DefineFunction> defineFunctions = transformationDictionary.getDefineFunctions();
+
+				List<DefineFunction> sortedDefineFunctions = sortTopologically(defineFunctions, DefineFunction::getName, ConcurrentModelEncoder::getFunctionDependencies, ConcurrentModelEncoder.DEFINEFUNCTION_COMPARATOR);
+
+				defineFunctions.clear();
+				defineFunctions.addAll(sortedDefineFunctions);
+			}
+		}
+
+		return pmml;
+	}
+
+	@Override
+	synchronized
+	public void addDataField(DataField dataField){
+		super.addDataField(dataField);
+	}
+
+	@Override
+	public DerivedField getDerivedField(FieldName name){
+		DerivedField derivedField = (getDerivedFields()).get(name);
+
+		if(derivedField != null){
+			return derivedField;
+		}
+
+		// Materializes a declaration
+		synchronized(this){
+			return super.getDerivedField(name);
+		}
+	}
+
+	@Override
+	synchronized
+	public void addDerivedField(DerivedField derivedField){
+		super.addDerivedField(derivedField);
+	}
+
+	@Override
+	synchronized
+	public DerivedField createDerivedField(FieldName name, OpType opType, DataType dataType, Expression expression){
+		return super.createDerivedField(name, opType, dataType, expression);
+	}
+
+	@Override
+	public DerivedField ensureDerivedField(FieldName name, OpType opType, DataType dataType, Supplier<? extends Expression> expressionSupplier){
+		DerivedField derivedField = getDerivedField(name);
+
+		if(derivedField != null){
+			return derivedField;
+		}
+
+		// The supplier may create other derived fields, so it must not be invoked while holding the lock
+		Expression expression = expressionSupplier.get();
+
+		synchronized(this){
+			derivedField = getDerivedField(name);
+
+			if(derivedField == null){
+				derivedField = createDerivedField(name, opType, dataType, expression);
+			}
+		}
+
+		return derivedField;
+	}
+
+	@Override
+	synchronized
+	public void declareDerivedField(FieldName name, OpType opType, DataType dataType, Supplier<? extends Expression> expressionSupplier){
+		super.declareDerivedField(name, opType, dataType, expressionSupplier);
+	}
+
+	@Override
+	synchronized
+	public void freeze(){
+		super.freeze();
+	}
+
+	/**
+	 * <p>
+	 * Creates a child encoder that is thread-safe as well.
+	 * </p>
+	 *
+	 * @see PMMLEncoder#fork()
+	 */
+	@Override
+	public ConcurrentModelEncoder fork(){
+		checkForkable();
+
+		ConcurrentModelEncoder encoder = new ConcurrentModelEncoder(new LayeredMap<>(getDataFields(), Collections.synchronizedMap(new LinkedHashMap<FieldName, DataField>())), new LayeredMap<>(getDerivedFields(), new ConcurrentHashMap<FieldName, DerivedField>()), new LayeredMap<>(getDefineFunctions(), new ConcurrentHashMap<String, DefineFunction>()), ConcurrentHashMultiset.<FieldName>create(), new LayeredMap<>(getDecorators(), new ConcurrentHashMap<FieldName, List<Decorator>>()), new LayeredMap<>(getUnivariateStats(), new ConcurrentHashMap<FieldName, UnivariateStats>()));
+		encoder.inherit(this);
+		encoder.setCompactNames(getCompactNames());
+
+		return encoder;
+	}
+
+	@Override
+	synchronized
+	public void merge(PMMLEncoder encoder){
+		super.merge(encoder);
+	}
+
+	@Override
+	synchronized
+	protected void materializeDerivedFields(){
+		super.materializeDerivedFields();
+	}
+
+	@Override
+	synchronized
+	protected void materializeDerivedField(FieldName name){
+		super.materializeDerivedField(name);
+	}
+
+	@Override
+	synchronized
+	public Field<?> toContinuous(FieldName name){
+		return super.toContinuous(name);
+	}
+
+	@Override
+	synchronized
+	public Field<?> toCategorical(FieldName name, List<String> values){
+		return super.toCategorical(name, values);
+	}
+
+	@Override
+	synchronized
+	public void addDefineFunction(DefineFunction defineFunction){
+		super.addDefineFunction(defineFunction);
+	}
+
+	@Override
+	synchronized
+	public void addDecorator(FieldName name, Decorator decorator){
+		super.addDecorator(name, decorator);
+	}
+
+	/**
+	 * <p>
+	 * Sorts elements so that every element follows the elements that it depends on (Kahn's algorithm).
+	 * Among the elements whose dependencies have been satisfied, the lowest one according to the comparator is taken first.
+	 * </p>
+	 *
+	 * @param dependencyFunction A function that returns the names that the element refers to.
+	 * Names that do not belong to any element are ignored.
+	 *
+	 * @throws IllegalArgumentException If the dependencies are circular.
+	 */
+	static
+	private <E> List<E> sortTopologically(List<E> elements, Function<E, String> nameFunction, Function<E, Set<String>> dependencyFunction, Comparator<? super E> comparator){
+		Map<String, E> namedElements = new HashMap<>();
+
+		for(E element : elements){
+			namedElements.put(nameFunction.apply(element), element);
+		}
+
+		Map<String, Integer> dependencyCounts = new HashMap<>();
+
+		ListMultimap<String, E> dependentElements = ArrayListMultimap.create();
+
+		PriorityQueue<E> queue = new PriorityQueue<>(Math.max(elements.size(), 1), comparator);
+
+		for(E element : elements){
+			String name = nameFunction.apply(element);
+
+			Set<String> dependencies = new HashSet<>(dependencyFunction.apply(element));
+			dependencies.retainAll(namedElements.keySet());
+			dependencies.remove(name);
+
+			for(String dependency : dependencies){
+				dependentElements.put(dependency, element);
+			}
+
+			dependencyCounts.put(name, dependencies.size());
+
+			if(dependencies.isEmpty()){
+				queue.add(element);
+			}
+		}
+
+		List<E> result = new ArrayList<>(elements.size());
+
+		while(!queue.isEmpty()){
+			E element = queue.poll();
+
+			result.add(element);
+
+			for(E dependentElement : dependentElements.get(nameFunction.apply(element))){
+				String dependentName = nameFunction.apply(dependentElement);
+
+				int dependencyCount = dependencyCounts.get(dependentName) - 1;
+
+				dependencyCounts.put(dependentName, dependencyCount);
+
+				if(dependencyCount == 0){
+					queue.add(dependentElement);
+				}
+			}
+		}
+
+		if(result.size() != elements.size()){
+			Set<String> names = new TreeSet<>(namedElements.keySet());
+
+			for(E element : result){
+				names.remove(nameFunction.apply(element));
+			}
+
+			throw new IllegalArgumentException("Circular dependencies between " + names);
+		}
+
+		return result;
+	}
+
+	static
+	private Set<String> getFieldDependencies(DerivedField derivedField){
+		Multiset<FieldName> names = HashMultiset.create();
+
+		PMMLObjectUtil.collectFieldNames(derivedField.getExpression(), names);
+
+		Set<String> result = new HashSet<>();
+
+		for(FieldName name : names.elementSet()){
+			result.add(name.getValue());
+		}
+
+		return result;
+	}
+
+	static
+	private Set<String> getFunctionDependencies(DefineFunction defineFunction){
+		Set<String> result = new HashSet<>();
+
+		Visitor visitor = new AbstractVisitor(){
+
+			@Override
+			public VisitorAction visit(Apply apply){
+				result.add(apply.getFunction());
+
+				return super.visit(apply);
+			}
+		};
+		visitor.applyTo(defineFunction);
+
+		return result;
+	}
+
+	private static final Comparator<DerivedField> DERIVEDFIELD_COMPARATOR = new Comparator<DerivedField>(){
+
+		@Override
+		public int compare(DerivedField left, DerivedField right){
+			return ((left.getName()).getValue()).compareTo((right.getName()).getValue());
+		}
+	};
+
+	private static final Comparator<DefineFunction> DEFINEFUNCTION_COMPARATOR = new Comparator<DefineFunction>(){
+
+		@Override
+		public int compare(DefineFunction left, DefineFunction right){
+			return (left.getName()).compareTo(right.getName());
+		}
+	};
+}
@@ -21,9 +21,7 @@ package org.jpmml.converter;
 import java.util.Objects;
 
 import com.google.common.base.Objects.ToStringHelper;
-import org.dmg.pmml.Constant;
 import org.dmg.pmml.DataType;
-import org.dmg.pmml.DerivedField;
 import org.dmg.pmml.FieldName;
 import org.dmg.pmml.OpType;
 
@@ -33,7 +31,7 @@ public class ConstantFeature extends Feature implements HasDerivedName {
 
 
 	public ConstantFeature(PMMLEncoder encoder, Number value){
-		this(encoder, FieldName.create(ValueUtil.formatValue(value) + (value instanceof Float ? "f" : "")), ValueUtil.getDataType(value), value);
+		this(encoder, FeatureUtil.createName(encoder, ValueUtil.formatValue(value) + (value instanceof Float ? "f" : "")), ValueUtil.getDataType(value), value);
 	}
 
 	public ConstantFeature(PMMLEncoder encoder, FieldName name, DataType dataType, Number value){
@@ -44,28 +42,27 @@ public class ConstantFeature extends Feature implements HasDerivedName {
 
 	@Override
 	public FieldName getDerivedName(){
-		return FieldName.create("constant(" + (getName()).getValue() + ")");
+		return FeatureUtil.createName(getEncoder(), "constant(" + (getName()).getValue() + ")");
 	}
 
 	@Override
 	public ContinuousFeature toContinuousFeature(){
 		PMMLEncoder encoder = ensureEncoder();
 
-		FieldName derivedName = getDerivedName();
+		return encoder.getContinuousFeature(this, null, () -> encodeContinuousFeature(encoder));
+	}
 
-		DerivedField derivedField = encoder.getDerivedField(derivedName);
-		if(derivedField == null){
-			Constant constant = PMMLUtil.createConstant(getValue(), getDataType());
+	private ContinuousFeature encodeContinuousFeature(PMMLEncoder encoder){
+		FieldName derivedName = getDerivedName();
 
-			derivedField = encoder.createDerivedField(derivedName, OpType.CONTINUOUS, getDataType(), constant);
-		}
+		encoder.declareDerivedField(derivedName, OpType.CONTINUOUS, getDataType(), () -> PMMLUtil.createConstant(getValue(), getDataType()));
 
-		return new ContinuousFeature(encoder, derivedField);
+		return new ContinuousFeature(encoder, derivedName, getDataType());
 	}
 
 	@Override
-	public int hashCode(){
-		return (31 * super.hashCode()) + Objects.hashCode(this.getValue());
+	protected int computeHashCode(){
+		return (31 * super.computeHashCode()) + Objects.hashCode(this.getValue());
 	}
 
 	@Override
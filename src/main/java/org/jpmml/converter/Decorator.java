@@ -18,10 +18,12 @@
  */
 package org.jpmml.converter;
 
+import java.io.Serializable;
+
 import org.dmg.pmml.DataField;
 import org.dmg.pmml.MiningField;
 
-public interface Decorator {
+public interface Decorator extends Serializable {
 
 	void decorate(DataField dataField, MiningField miningField);
 }
\ No newline at end of file
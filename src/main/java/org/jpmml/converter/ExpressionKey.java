@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.Objects;
+
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.Expression;
+import org.dmg.pmml.OpType;
+
+/**
+ * <p>
+ * A key that identifies a derived field by its operational type, data type and the structure of its expression.
+ * </p>
+ *
+ * @see PMMLObjectUtil#deepEquals(Object, Object)
+ */
+class ExpressionKey {
+
+	private OpType opType = null;
+
+	private DataType dataType = null;
+
+	private Expression expression = null;
+
+	private int hashCode = 0;
+
+
+	ExpressionKey(OpType opType, DataType dataType, Expression expression){
+		this.opType = opType;
+		this.dataType = dataType;
+		this.expression = expression;
+
+		this.hashCode = (31 * Objects.hash(opType, dataType)) + PMMLObjectUtil.deepHashCode(expression);
+	}
+
+	@Override
+	public int hashCode(){
+		return this.hashCode;
+	}
+
+	@Override
+	public boolean equals(Object object){
+
+		if(object instanceof ExpressionKey){
+			ExpressionKey that = (ExpressionKey)object;
+
+			return (this.hashCode == that.hashCode) && Objects.equals(this.opType, that.opType) && Objects.equals(this.dataType, that.dataType) && PMMLObjectUtil.deepEquals(this.expression, that.expression);
+		}
+
+		return false;
+	}
+}
@@ -22,13 +22,12 @@ import java.util.Objects;
 
 import com.google.common.base.Objects.ToStringHelper;
 import org.dmg.pmml.DataType;
-import org.dmg.pmml.DerivedField;
 import org.dmg.pmml.FieldName;
 import org.dmg.pmml.FieldRef;
 import org.dmg.pmml.OpType;
 
 abstract
-public class Feature {
+public class Feature implements Cloneable {
 
 	private PMMLEncoder encoder = null;
 
@@ -36,6 +35,8 @@ public class Feature {
 
 	private DataType dataType = null;
 
+	private int hashCode = 0;
+
 
 	public Feature(PMMLEncoder encoder, FieldName name, DataType dataType){
 		setEncoder(encoder);
@@ -46,7 +47,28 @@ public class Feature {
 	abstract
 	public ContinuousFeature toContinuousFeature();
 
+	/**
+	 * <p>
+	 * Converts this feature to a continuous feature of the specified data type.
+	 * The result is memoized by the encoder (keyed by the identity of this feature and the data type).
+	 * </p>
+	 */
 	public ContinuousFeature toContinuousFeature(DataType dataType){
+
+		if(this instanceof ContinuousFeature && (dataType).equals(getDataType())){
+			return (ContinuousFeature)this;
+		}
+
+		PMMLEncoder encoder = getEncoder();
+
+		if(encoder != null){
+			return encoder.getContinuousFeature(this, dataType, () -> encodeContinuousFeature(dataType));
+		}
+
+		return encodeContinuousFeature(dataType);
+	}
+
+	private ContinuousFeature encodeContinuousFeature(DataType dataType){
 		ContinuousFeature continuousFeature = toContinuousFeature();
 
 		if((dataType).equals(continuousFeature.getDataType())){
@@ -55,22 +77,62 @@ public class Feature {
 
 		PMMLEncoder encoder = ensureEncoder();
 
-		FieldName name = FieldName.create((dataType.name()).toLowerCase() + "(" + (continuousFeature.getName()).getValue() + ")");
+		FieldName name = encoder.createName((dataType.name()).toLowerCase() + "(" + (continuousFeature.getName()).getValue() + ")");
+
+		encoder.declareDerivedField(name, OpType.CONTINUOUS, dataType, () -> continuousFeature.ref());
 
-		DerivedField derivedField = encoder.getDerivedField(name);
-		if(derivedField == null){
-			derivedField = encoder.createDerivedField(name, OpType.CONTINUOUS, dataType, continuousFeature.ref());
+		return new ContinuousFeature(encoder, name, dataType);
+	}
+
+	/**
+	 * <p>
+	 * Creates a copy of this feature that is bound to another encoder.
+	 * Subclasses that hold references to other features must rebind them as well.
+	 * </p>
+	 *
+	 * @see PMMLEncoder#fork()
+	 */
+	public Feature rebind(PMMLEncoder encoder){
+		Feature feature;
+
+		try {
+			feature = (Feature)clone();
+		} catch(CloneNotSupportedException cnse){
+			throw new RuntimeException(cnse);
 		}
 
-		return new ContinuousFeature(encoder, derivedField);
+		feature.setEncoder(encoder);
+		feature.hashCode = 0;
+
+		return feature;
 	}
 
 	public FieldRef ref(){
+		FeatureUtil.addReference(this);
+
 		return new FieldRef(getName());
 	}
 
+	/**
+	 * <p>
+	 * Features are immutable, so the hash code is computed once and cached.
+	 * Subclasses should override {@link #computeHashCode()} instead of this method.
+	 * </p>
+	 */
 	@Override
 	public int hashCode(){
+		int result = this.hashCode;
+
+		if(result == 0){
+			result = computeHashCode();
+
+			this.hashCode = result;
+		}
+
+		return result;
+	}
+
+	protected int computeHashCode(){
 		int result = 0;
 
 		result = (31 * result) + Objects.hashCode(this.getEncoder());
@@ -83,10 +145,14 @@ public class Feature {
 	@Override
 	public boolean equals(Object object){
 
+		if(object == this){
+			return true;
+		} // End if
+
 		if(object instanceof Feature){
 			Feature that = (Feature)object;
 
-			return (this.getClass()).equals(that.getClass()) && Objects.equals(this.getEncoder(), that.getEncoder()) && Objects.equals(this.getName(), that.getName()) && Objects.equals(this.getDataType(), that.getDataType());
+			return (this.getClass()).equals(that.getClass()) && (this.hashCode() == that.hashCode()) && Objects.equals(this.getEncoder(), that.getEncoder()) && Objects.equals(this.getName(), that.getName()) && Objects.equals(this.getDataType(), that.getDataType());
 		}
 
 		return false;
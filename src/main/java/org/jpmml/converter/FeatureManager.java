@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2016 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.FieldName;
+
+/**
+ * <p>
+ * A hash-consing feature factory.
+ * </p>
+ *
+ * <p>
+ * Equal features are represented by a single canonical instance,
+ * which makes subsequent equality checks (eg. during predicate interning or schema deduplication) identity checks.
+ * The manager should be scoped to a single conversion.
+ * </p>
+ */
+public class FeatureManager {
+
+	private Interner<Feature> interner = Interners.newStrongInterner();
+
+
+	public ContinuousFeature createContinuousFeature(PMMLEncoder encoder, FieldName name, DataType dataType){
+		return intern(new ContinuousFeature(encoder, name, dataType), ContinuousFeature.class);
+	}
+
+	public BinaryFeature createBinaryFeature(PMMLEncoder encoder, FieldName name, DataType dataType, String value){
+		return intern(new BinaryFeature(encoder, name, dataType, value), BinaryFeature.class);
+	}
+
+	public CategoricalFeature createCategoricalFeature(PMMLEncoder encoder, FieldName name, DataType dataType, List<String> values){
+		return intern(new CategoricalFeature(encoder, name, dataType, values), CategoricalFeature.class);
+	}
+
+	public ConstantFeature createConstantFeature(PMMLEncoder encoder, Number value){
+		return intern(new ConstantFeature(encoder, value), ConstantFeature.class);
+	}
+
+	public PowerFeature createPowerFeature(PMMLEncoder encoder, FieldName name, DataType dataType, int power){
+		return intern(new PowerFeature(encoder, name, dataType, power), PowerFeature.class);
+	}
+
+	/**
+	 * <p>
+	 * Creates the canonical product of features.
+	 * </p>
+	 *
+	 * <p>
+	 * Nested interaction features are flattened, and constant features are folded into a single leading constant feature (omitted if equal to one).
+	 * The remaining features are sorted, so that <code>a:b</code> and <code>b:a</code> yield the same interaction feature
+	 * (and, in turn, the same derived field or predictor term).
+	 * </p>
+	 *
+	 * @return An interaction feature.
+	 * If the product degenerates to a single factor, then the factor itself.
+	 */
+	public Feature createInteractionFeature(PMMLEncoder encoder, List<? extends Feature> features){
+		double coefficient = 1d;
+
+		List<Feature> inputFeatures = new ArrayList<>(features.size());
+
+		for(Feature feature : features){
+			List<? extends Feature> expandedFeatures;
+
+			if(feature instanceof InteractionFeature){
+				InteractionFeature interactionFeature = (InteractionFeature)feature;
+
+				expandedFeatures = interactionFeature.getInputFeatures();
+			} else
+
+			{
+				expandedFeatures = Collections.singletonList(feature);
+			}
+
+			for(Feature expandedFeature : expandedFeatures){
+
+				if(expandedFeature instanceof ConstantFeature){
+					ConstantFeature constantFeature = (ConstantFeature)expandedFeature;
+
+					coefficient *= (constantFeature.getValue()).doubleValue();
+				} else
+
+				{
+					inputFeatures.add(intern(expandedFeature));
+				}
+			}
+		}
+
+		Collections.sort(inputFeatures, FeatureManager.FEATURE_COMPARATOR);
+
+		if(coefficient != 1d || inputFeatures.isEmpty()){
+			inputFeatures.add(0, createConstantFeature(encoder, coefficient));
+		} // End if
+
+		if(inputFeatures.size() == 1){
+			return inputFeatures.get(0);
+		}
+
+		String name = inputFeatures.stream()
+			.map(inputFeature -> (FeatureUtil.getName(inputFeature)).getValue())
+			.collect(Collectors.joining(":"));
+
+		return intern(new InteractionFeature(encoder, FeatureUtil.createName(encoder, name), DataType.DOUBLE, inputFeatures), InteractionFeature.class);
+	}
+
+	public InteractionFeature createInteractionFeature(PMMLEncoder encoder, FieldName name, DataType dataType, List<? extends Feature> features){
+		List<Feature> internedFeatures = new ArrayList<>(features.size());
+
+		for(Feature feature : features){
+			internedFeatures.add(intern(feature));
+		}
+
+		return intern(new InteractionFeature(encoder, name, dataType, internedFeatures), InteractionFeature.class);
+	}
+
+	/**
+	 * <p>
+	 * Gets the canonical instance of the feature.
+	 * </p>
+	 */
+	public Feature intern(Feature feature){
+		return this.interner.intern(feature);
+	}
+
+	/**
+	 * <p>
+	 * Gets the canonical instance of the feature.
+	 * Equal features are instances of the same class, so the canonical instance is an instance of the specified class.
+	 * </p>
+	 */
+	public <F extends Feature> F intern(F feature, Class<F> clazz){
+		return clazz.cast(this.interner.intern(feature));
+	}
+
+	private static final Comparator<Feature> FEATURE_COMPARATOR = new Comparator<Feature>(){
+
+		@Override
+		public int compare(Feature left, Feature right){
+			int result = ((FeatureUtil.getName(left)).getValue()).compareTo((FeatureUtil.getName(right)).getValue());
+
+			if(result == 0){
+				result = ((left.getName()).getValue()).compareTo((right.getName()).getValue());
+			} // End if
+
+			if(result == 0){
+				result = (left.getDataType()).compareTo(right.getDataType());
+			} // End if
+
+			if(result == 0){
+				result = ((left.getClass()).getName()).compareTo((right.getClass()).getName());
+			}
+
+			return result;
+		}
+	};
+}
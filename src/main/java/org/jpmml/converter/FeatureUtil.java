@@ -41,39 +41,74 @@ public class FeatureUtil {
 		return feature.getName();
 	}
 
+	/**
+	 * <p>
+	 * Registers a use of the feature with its encoder (if any).
+	 * </p>
+	 *
+	 * @see PMMLEncoder#addReference(FieldName)
+	 */
+	static
+	public void addReference(Feature feature){
+		PMMLEncoder encoder = feature.getEncoder();
+
+		if(encoder != null){
+			encoder.addReference(feature.getName());
+		}
+	}
+
+	/**
+	 * <p>
+	 * Creates a field name.
+	 * If the encoder is available, then the name is scoped to it.
+	 * </p>
+	 *
+	 * @see PMMLEncoder#createName(String)
+	 */
+	static
+	public FieldName createName(PMMLEncoder encoder, String value){
+
+		if(encoder != null){
+			return encoder.createName(value);
+		}
+
+		return new FieldName(value);
+	}
+
 	static
 	public FieldName createName(String function, Feature feature){
-		return FieldName.create(function + "(" + getName(feature).getValue() + ")");
+		return createName(feature.getEncoder(), function + "(" + getName(feature).getValue() + ")");
 	}
 
 	static
 	public FieldName createName(String function, Feature feature, int index){
-		return FieldName.create(function + "(" + getName(feature).getValue() + ")" + "[" + index + "]");
+		return createName(feature.getEncoder(), function + "(" + getName(feature).getValue() + ")" + "[" + index + "]");
 	}
 
 	static
 	public FieldName createName(String function, List<? extends Feature> features){
-		Stream<FieldName> nameStream;
+		Stream<String> valueStream;
 
 		if(features.size() <= 5){
-			nameStream = features.stream()
-				.map(feature -> getName(feature));
+			valueStream = features.stream()
+				.map(feature -> getName(feature).getValue());
 		} else
 
 		{
-			nameStream = Stream.of(
+			valueStream = Stream.of(
 				features.subList(0, 2).stream()
-					.map(feature -> getName(feature)),
-				Stream.of(FieldName.create("..")),
+					.map(feature -> getName(feature).getValue()),
+				Stream.of(".."),
 				features.subList(features.size() - 2, features.size()).stream()
-					.map(feature -> getName(feature))
+					.map(feature -> getName(feature).getValue())
 			).flatMap(x -> x);
 		}
 
-		String value = nameStream
-			.map(name -> name.getValue())
+		String value = valueStream
 			.collect(Collectors.joining(", ", function + "(", ")"));
 
-		return FieldName.create(value);
+		PMMLEncoder encoder = (features.size() > 0 ? (features.get(0)).getEncoder() : null);
+
+		return createName(encoder, value);
 	}
 }
\ No newline at end of file
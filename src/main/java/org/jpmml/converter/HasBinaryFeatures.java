@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+/**
+ * <p>
+ * A feature list that can describe its binary features without creating them.
+ * </p>
+ *
+ * @see BinaryFeatureList
+ * @see CompositeFeatureList
+ */
+public interface HasBinaryFeatures {
+
+	/**
+	 * @return The categorical feature that the binary feature at the specified index is a view of,
+	 * or <code>null</code> if the feature at the specified index is not such a binary feature.
+	 */
+	CategoricalFeature getCategoricalFeature(int index);
+
+	/**
+	 * @return The category value of the binary feature at the specified index.
+	 *
+	 * @see #getCategoricalFeature(int)
+	 */
+	String getValue(int index);
+}
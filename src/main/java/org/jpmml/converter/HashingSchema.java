@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * <p>
+ * A schema for a hashed feature space.
+ * </p>
+ *
+ * <p>
+ * Raw values are mapped to buckets by the hash function, and bucket features are created on first access by the bucket feature function.
+ * The feature list is a view of all buckets, but only the buckets that are actually accessed (eg. buckets with non-zero coefficients) are materialized.
+ * Iterating over the full feature list materializes every bucket, and should be avoided.
+ * </p>
+ *
+ * @see org.jpmml.converter.regression.RegressionModelUtil#createRegressionTable(List, int[], double[], Double)
+ */
+public class HashingSchema extends Schema {
+
+	private ToIntFunction<String> hashFunction = null;
+
+
+	public HashingSchema(Label label, ToIntFunction<String> hashFunction, int numberOfBuckets, IntFunction<? extends Feature> bucketFeatureFunction){
+		this(label, hashFunction, new BucketFeatureList(numberOfBuckets, bucketFeatureFunction));
+	}
+
+	private HashingSchema(Label label, ToIntFunction<String> hashFunction, BucketFeatureList bucketFeatures){
+		super(label, bucketFeatures);
+
+		setHashFunction(hashFunction);
+	}
+
+	@Override
+	public HashingSchema toAnonymousSchema(){
+		Label label = getLabel();
+
+		return new HashingSchema(label != null ? label.toAnonymousLabel() : null, getHashFunction(), (BucketFeatureList)getFeatures());
+	}
+
+	/**
+	 * <p>
+	 * Gets the bucket of a raw value.
+	 * </p>
+	 */
+	public int getBucket(String value){
+		ToIntFunction<String> hashFunction = getHashFunction();
+
+		return Math.floorMod(hashFunction.applyAsInt(value), getNumberOfBuckets());
+	}
+
+	public Feature getBucketFeature(String value){
+		return getFeature(getBucket(value));
+	}
+
+	public int getNumberOfBuckets(){
+		List<? extends Feature> features = getFeatures();
+
+		return features.size();
+	}
+
+	/**
+	 * <p>
+	 * Gets the number of buckets that have been materialized so far.
+	 * </p>
+	 */
+	public int getNumberOfMaterializedBuckets(){
+		BucketFeatureList bucketFeatures = (BucketFeatureList)getFeatures();
+
+		return bucketFeatures.getNumberOfMaterializedBuckets();
+	}
+
+	public ToIntFunction<String> getHashFunction(){
+		return this.hashFunction;
+	}
+
+	private void setHashFunction(ToIntFunction<String> hashFunction){
+
+		if(hashFunction == null){
+			throw new IllegalArgumentException();
+		}
+
+		this.hashFunction = hashFunction;
+	}
+
+	static
+	private class BucketFeatureList extends AbstractList<Feature> implements RandomAccess {
+
+		private int numberOfBuckets = 0;
+
+		private IntFunction<? extends Feature> bucketFeatureFunction = null;
+
+		private ConcurrentMap<Integer, Feature> bucketFeatures = new ConcurrentHashMap<>();
+
+
+		private BucketFeatureList(int numberOfBuckets, IntFunction<? extends Feature> bucketFeatureFunction){
+
+			if(numberOfBuckets < 1 || bucketFeatureFunction == null){
+				throw new IllegalArgumentException();
+			}
+
+			this.numberOfBuckets = numberOfBuckets;
+			this.bucketFeatureFunction = bucketFeatureFunction;
+		}
+
+		@Override
+		public int size(){
+			return this.numberOfBuckets;
+		}
+
+		@Override
+		public Feature get(int index){
+
+			if(index < 0 || index >= this.numberOfBuckets){
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+
+			return this.bucketFeatures.computeIfAbsent(index, this.bucketFeatureFunction::apply);
+		}
+
+		public int getNumberOfMaterializedBuckets(){
+			return this.bucketFeatures.size();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * A read-only view that selects features of a parent list by index.
+ * </p>
+ *
+ * @see Schema#toSubSchema(int[])
+ */
+class IndexedFeatureList extends AbstractList<Feature> implements RandomAccess, HasBinaryFeatures {
+
+	private List<? extends Feature> parent = null;
+
+	private int[] indexes = null;
+
+
+	IndexedFeatureList(List<? extends Feature> parent, int[] indexes){
+
+		if(parent == null || indexes == null){
+			throw new IllegalArgumentException();
+		}
+
+		indexes = indexes.clone();
+
+		for(int index : indexes){
+
+			if(index < 0 || index >= parent.size()){
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+		}
+
+		this.parent = parent;
+		this.indexes = indexes;
+	}
+
+	@Override
+	public int size(){
+		return this.indexes.length;
+	}
+
+	@Override
+	public Feature get(int index){
+		return this.parent.get(this.indexes[index]);
+	}
+
+	@Override
+	public CategoricalFeature getCategoricalFeature(int index){
+
+		if(this.parent instanceof HasBinaryFeatures){
+			HasBinaryFeatures binaryFeatures = (HasBinaryFeatures)this.parent;
+
+			return binaryFeatures.getCategoricalFeature(this.indexes[index]);
+		}
+
+		return null;
+	}
+
+	@Override
+	public String getValue(int index){
+
+		if(this.parent instanceof HasBinaryFeatures){
+			HasBinaryFeatures binaryFeatures = (HasBinaryFeatures)this.parent;
+
+			return binaryFeatures.getValue(this.indexes[index]);
+		}
+
+		throw new IllegalArgumentException();
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * A read-only list that is backed by a <code>int[]</code> array.
+ * </p>
+ *
+ * <p>
+ * Use {@link #getInt(int)} to read values without boxing.
+ * Sub lists share the backing array.
+ * </p>
+ */
+public class IntList extends AbstractList<Integer> implements RandomAccess {
+
+	private int[] values = null;
+
+	private int offset = 0;
+
+	private int size = 0;
+
+
+	/**
+	 * @param values The backing array, which must not be modified afterwards.
+	 */
+	public IntList(int[] values){
+		this(values, 0, values.length);
+	}
+
+	private IntList(int[] values, int offset, int size){
+
+		if(values == null){
+			throw new IllegalArgumentException();
+		}
+
+		this.values = values;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	@Override
+	public int size(){
+		return this.size;
+	}
+
+	@Override
+	public Integer get(int index){
+		return getInt(index);
+	}
+
+	public int getInt(int index){
+
+		if(index < 0 || index >= this.size){
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+
+		return this.values[this.offset + index];
+	}
+
+	@Override
+	public IntList subList(int fromIndex, int toIndex){
+
+		if(fromIndex < 0 || toIndex > this.size || fromIndex > toIndex){
+			throw new IndexOutOfBoundsException();
+		}
+
+		return new IntList(this.values, this.offset + fromIndex, toIndex - fromIndex);
+	}
+
+	public int[] toIntArray(){
+		return Arrays.copyOfRange(this.values, this.offset, this.offset + this.size);
+	}
+}
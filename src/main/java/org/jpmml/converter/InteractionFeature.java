@@ -19,13 +19,13 @@
 package org.jpmml.converter;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 import com.google.common.base.Objects.ToStringHelper;
 import org.dmg.pmml.Apply;
 import org.dmg.pmml.DataType;
-import org.dmg.pmml.DerivedField;
 import org.dmg.pmml.Field;
 import org.dmg.pmml.FieldName;
 import org.dmg.pmml.OpType;
@@ -34,6 +34,8 @@ public class InteractionFeature extends Feature {
 
 	private List<? extends Feature> features = null;
 
+	private List<Feature> inputFeatures = null;
+
 
 	public InteractionFeature(PMMLEncoder encoder, Field<?> field, List<? extends Feature> features){
 		this(encoder, field.getName(), field.getDataType(), features);
@@ -51,23 +53,45 @@ public class InteractionFeature extends Feature {
 
 		List<? extends Feature> features = getFeatures();
 
-		DerivedField derivedField = encoder.getDerivedField(getName());
-		if(derivedField == null){
-			Apply apply = PMMLUtil.createApply("*", ((features.get(0)).toContinuousFeature()).ref(), ((features.get(1)).toContinuousFeature()).ref());
+		List<ContinuousFeature> continuousFeatures = new ArrayList<>(features.size());
+
+		for(Feature feature : features){
+			continuousFeatures.add(feature.toContinuousFeature());
+		}
+
+		encoder.declareDerivedField(getName(), OpType.CONTINUOUS, DataType.DOUBLE, () -> {
+			Apply apply = PMMLUtil.createApply("*", (continuousFeatures.get(0)).ref(), (continuousFeatures.get(1)).ref());
 
-			for(int i = 2; i < features.size(); i++){
-				apply = PMMLUtil.createApply("*", apply, ((features.get(i)).toContinuousFeature()).ref());
+			for(int i = 2; i < continuousFeatures.size(); i++){
+				apply = PMMLUtil.createApply("*", apply, (continuousFeatures.get(i)).ref());
 			}
 
-			derivedField = encoder.createDerivedField(getName(), OpType.CONTINUOUS, DataType.DOUBLE, apply);
+			return apply;
+		});
+
+		return new ContinuousFeature(encoder, getName(), DataType.DOUBLE);
+	}
+
+	@Override
+	public InteractionFeature rebind(PMMLEncoder encoder){
+		InteractionFeature interactionFeature = (InteractionFeature)super.rebind(encoder);
+
+		List<? extends Feature> features = getFeatures();
+
+		List<Feature> reboundFeatures = new ArrayList<>(features.size());
+
+		for(Feature feature : features){
+			reboundFeatures.add(feature.rebind(encoder));
 		}
 
-		return new ContinuousFeature(encoder, derivedField);
+		interactionFeature.setFeatures(reboundFeatures);
+
+		return interactionFeature;
 	}
 
 	@Override
-	public int hashCode(){
-		return (31 * super.hashCode()) + Objects.hashCode(this.getFeatures());
+	protected int computeHashCode(){
+		return (31 * super.computeHashCode()) + Objects.hashCode(this.getFeatures());
 	}
 
 	@Override
@@ -88,7 +112,22 @@ public class InteractionFeature extends Feature {
 			.add("features", getFeatures());
 	}
 
+	/**
+	 * <p>
+	 * Gets the input features of this feature, with nested interaction features flattened.
+	 * The result is computed once and cached.
+	 * </p>
+	 */
 	public List<? extends Feature> getInputFeatures(){
+
+		if(this.inputFeatures == null){
+			this.inputFeatures = Collections.unmodifiableList(flattenFeatures());
+		}
+
+		return this.inputFeatures;
+	}
+
+	private List<Feature> flattenFeatures(){
 		List<Feature> result = new ArrayList<>();
 
 		List<? extends Feature> features = getFeatures();
@@ -119,5 +158,6 @@ public class InteractionFeature extends Feature {
 		}
 
 		this.features = features;
+		this.inputFeatures = null;
 	}
 }
\ No newline at end of file
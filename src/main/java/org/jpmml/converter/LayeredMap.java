@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Iterators;
+
+/**
+ * <p>
+ * A map that stores its own entries on top of a read-only parent map.
+ * Own entries shadow parent entries with the same key.
+ * </p>
+ */
+class LayeredMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+	private Map<K, V> parent = null;
+
+	private Map<K, V> own = null;
+
+
+	LayeredMap(Map<K, V> parent){
+		this(parent, new LinkedHashMap<K, V>());
+	}
+
+	/**
+	 * @param own An empty map for own entries. Determines the iteration order and the thread safety of own entries.
+	 */
+	LayeredMap(Map<K, V> parent, Map<K, V> own){
+
+		if(parent == null || own == null){
+			throw new IllegalArgumentException();
+		}
+
+		this.parent = parent;
+		this.own = own;
+	}
+
+	@Override
+	public V get(Object key){
+
+		if(this.own.containsKey(key)){
+			return this.own.get(key);
+		}
+
+		return this.parent.get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key){
+		return this.own.containsKey(key) || this.parent.containsKey(key);
+	}
+
+	@Override
+	public V put(K key, V value){
+		V result = get(key);
+
+		this.own.put(key, value);
+
+		return result;
+	}
+
+	@Override
+	public V remove(Object key){
+
+		if(this.parent.containsKey(key)){
+			throw new UnsupportedOperationException();
+		}
+
+		return this.own.remove(key);
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet(){
+		return new AbstractSet<Map.Entry<K, V>>(){
+
+			@Override
+			public int size(){
+				int result = (LayeredMap.this.parent).size();
+
+				for(K key : (LayeredMap.this.own).keySet()){
+
+					if(!(LayeredMap.this.parent).containsKey(key)){
+						result++;
+					}
+				}
+
+				return result;
+			}
+
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator(){
+				Iterator<Map.Entry<K, V>> parentEntries = Iterators.transform(((LayeredMap.this.parent).entrySet()).iterator(), entry -> {
+					K key = entry.getKey();
+
+					if((LayeredMap.this.own).containsKey(key)){
+						return new SimpleImmutableEntry<>(key, (LayeredMap.this.own).get(key));
+					}
+
+					return entry;
+				});
+
+				Iterator<Map.Entry<K, V>> ownEntries = Iterators.filter(((LayeredMap.this.own).entrySet()).iterator(), entry -> !(LayeredMap.this.parent).containsKey(entry.getKey()));
+
+				return Iterators.unmodifiableIterator(Iterators.concat(parentEntries, ownEntries));
+			}
+		};
+	}
+
+	/**
+	 * @return <code>true</code> if the entry is stored in this map, <code>false</code> if it is stored in the parent map.
+	 */
+	public boolean isOwn(Object key){
+		return this.own.containsKey(key);
+	}
+}
@@ -18,14 +18,29 @@
  */
 package org.jpmml.converter;
 
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Multiset;
 import org.dmg.pmml.DataDictionary;
 import org.dmg.pmml.DataField;
+import org.dmg.pmml.DefineFunction;
+import org.dmg.pmml.DerivedField;
 import org.dmg.pmml.FieldName;
 import org.dmg.pmml.MiningField;
 import org.dmg.pmml.MiningSchema;
@@ -34,69 +49,378 @@ import org.dmg.pmml.ModelStats;
 import org.dmg.pmml.PMML;
 import org.dmg.pmml.UnivariateStats;
 import org.dmg.pmml.Visitor;
+import org.dmg.pmml.mining.MiningModel;
+import org.dmg.pmml.mining.Segment;
+import org.dmg.pmml.mining.Segmentation;
 import org.jpmml.model.visitors.DataDictionaryCleaner;
 import org.jpmml.model.visitors.MiningSchemaCleaner;
 import org.jpmml.model.visitors.TransformationDictionaryCleaner;
 
 public class ModelEncoder extends PMMLEncoder {
 
-	private Map<FieldName, List<Decorator>> decorators = new LinkedHashMap<>();
+	private Map<FieldName, List<Decorator>> decorators = null;
+
+	private Map<FieldName, UnivariateStats> univariateStats = null;
+
+	private boolean compactNames = false;
+
+	private NameCompactor nameCompactor = null;
+
+
+	public ModelEncoder(){
+		this(new LinkedHashMap<FieldName, DataField>(), new LinkedHashMap<FieldName, DerivedField>(), new LinkedHashMap<String, DefineFunction>(), HashMultiset.<FieldName>create(), new LinkedHashMap<FieldName, List<Decorator>>(), new LinkedHashMap<FieldName, UnivariateStats>());
+	}
+
+	protected ModelEncoder(Map<FieldName, DataField> dataFields, Map<FieldName, DerivedField> derivedFields, Map<String, DefineFunction> defineFunctions, Multiset<FieldName> references, Map<FieldName, List<Decorator>> decorators, Map<FieldName, UnivariateStats> univariateStats){
+		super(dataFields, derivedFields, defineFunctions, references);
 
-	private Map<FieldName, UnivariateStats> univariateStats = new LinkedHashMap<>();
+		if(decorators == null || univariateStats == null){
+			throw new IllegalArgumentException();
+		}
 
+		this.decorators = decorators;
+		this.univariateStats = univariateStats;
+	}
 
 	public PMML encodePMML(Model model){
+		return encodePMML(Collections.singletonList(model));
+	}
+
+	/**
+	 * <p>
+	 * Encodes several models into one PMML document.
+	 * The models share one data dictionary and one transformation dictionary.
+	 * </p>
+	 *
+	 * <p>
+	 * The decorators of a data field are applied to the mining field of every model,
+	 * but only the decorations of the first model that uses the data field reach the data dictionary.
+	 * Later models are decorated against a scratch copy of the data field, which is then discarded.
+	 * </p>
+	 *
+	 * <p>
+	 * A model that references aliased derived field names is replaced with an updated copy.
+	 * </p>
+	 *
+	 * @see #resolveAliases(Model)
+	 */
+	public PMML encodePMML(List<? extends Model> models){
+
+		if(models.size() < 1){
+			throw new IllegalArgumentException();
+		}
+
 		PMML pmml = encodePMML();
 
-		pmml.addModels(model);
+		List<Model> resolvedModels = new ArrayList<>(models.size());
+
+		for(Model model : models){
+			resolvedModels.add(resolveAliases(model));
+		}
 
+		models = resolvedModels;
+
+		pmml.addModels(models.toArray(new Model[models.size()]));
+
+		// The cleaners cannot be fused into one traversal, because every cleaner relies on the pruning done by the cleaners before it
 		List<? extends Visitor> visitors = Arrays.asList(new MiningSchemaCleaner(), new TransformationDictionaryCleaner(), new DataDictionaryCleaner());
 		for(Visitor visitor : visitors){
 			visitor.applyTo(pmml);
 		}
 
-		MiningSchema miningSchema = model.getMiningSchema();
+		decorate(pmml.getDataDictionary(), models);
+
+		if(getCompactNames()){
+			NameCompactor nameCompactor = this.nameCompactor;
 
-		List<MiningField> miningFields = miningSchema.getMiningFields();
-		for(MiningField miningField : miningFields){
-			FieldName name = miningField.getName();
+			if(nameCompactor == null){
+				nameCompactor = new NameCompactor();
 
-			List<Decorator> decorators = getDecorators(name);
-			if(decorators == null){
-				continue;
+				this.nameCompactor = nameCompactor;
 			}
 
-			DataField dataField = getDataField(name);
-			if(dataField == null){
-				throw new IllegalArgumentException();
+			pmml = nameCompactor.applyTo(pmml, this::isGeneratedName);
+		}
+
+		return pmml;
+	}
+
+	/**
+	 * <p>
+	 * Encodes the model, and writes it to the stream one top-level element (and one segment) at a time.
+	 * </p>
+	 *
+	 * <p>
+	 * The model is consumed in the process.
+	 * Its segments are detached as soon as they have been written, so the model must not be used afterwards.
+	 * The PMML class model object is built in full before writing starts.
+	 * Use {@link #encodePMML(MiningModel, Iterator, OutputStream)} for converting and writing the segments of an ensemble one at a time.
+	 * </p>
+	 *
+	 * @see StAXUtil#writePMML(PMML, XMLStreamWriter)
+	 */
+	public void encodePMML(Model model, OutputStream os) throws JAXBException, XMLStreamException {
+		PMML pmml = encodePMML(model);
+
+		StAXUtil.writePMML(pmml, os);
+	}
+
+	/**
+	 * @see #encodePMML(Model, OutputStream)
+	 */
+	public void encodePMML(Model model, XMLStreamWriter writer) throws JAXBException, XMLStreamException {
+		PMML pmml = encodePMML(model);
+
+		StAXUtil.writePMML(pmml, writer);
+	}
+
+	/**
+	 * <p>
+	 * Encodes the mining model, and writes it to the stream one segment at a time.
+	 * </p>
+	 *
+	 * <p>
+	 * The segments are obtained from the iterator (typically, converted on demand) after the data dictionary and the transformation dictionary have been written,
+	 * and become unreachable as soon as they have been written.
+	 * The peak heap usage is bounded by the largest segment, rather than by the whole ensemble.
+	 * </p>
+	 *
+	 * <p>
+	 * The dictionaries are written before the segments are seen, so they are not cleaned of unused fields.
+	 * All fields that the segments use must exist in this encoder beforehand.
+	 * Derived field pruning and name compaction need to see the whole PMML document, and are not supported.
+	 * </p>
+	 *
+	 * @param miningModel A mining model whose segmentation is empty.
+	 *
+	 * @throws IllegalStateException If derived field pruning or name compaction is enabled,
+	 * or if this encoder gained fields while the segments were being written.
+	 */
+	public void encodePMML(MiningModel miningModel, Iterator<? extends Segment> segments, OutputStream os) throws JAXBException, XMLStreamException {
+		PMML pmml = encodeStreamingPMML(miningModel);
+
+		int size = countFields();
+
+		StAXUtil.writePMML(pmml, resolveAliases(segments), os);
+
+		checkFields(size);
+	}
+
+	/**
+	 * @see #encodePMML(MiningModel, Iterator, OutputStream)
+	 */
+	public void encodePMML(MiningModel miningModel, Iterator<? extends Segment> segments, XMLStreamWriter writer) throws JAXBException, XMLStreamException {
+		PMML pmml = encodeStreamingPMML(miningModel);
+
+		int size = countFields();
+
+		StAXUtil.writePMML(pmml, resolveAliases(segments), writer);
+
+		checkFields(size);
+	}
+
+	private PMML encodeStreamingPMML(MiningModel miningModel){
+
+		if(getPruneDerivedFields() || getCompactNames()){
+			throw new IllegalStateException();
+		}
+
+		Segmentation segmentation = miningModel.getSegmentation();
+		if(segmentation == null || segmentation.hasSegments()){
+			throw new IllegalArgumentException();
+		}
+
+		PMML pmml = encodePMML();
+
+		Model model = resolveAliases(miningModel);
+
+		pmml.addModels(model);
+
+		decorate(pmml.getDataDictionary(), Collections.singletonList(model));
+
+		return pmml;
+	}
+
+	private Iterator<Segment> resolveAliases(Iterator<? extends Segment> segments){
+		Map<FieldName, FieldName> aliases = getAliases();
+
+		return Iterators.transform(segments, segment -> (aliases.isEmpty() ? segment : PMMLObjectUtil.replaceFieldNames(segment, Segment.class, aliases)));
+	}
+
+	private int countFields(){
+		return (getDataFields()).size() + (getDerivedFields()).size() + (getDefineFunctions()).size();
+	}
+
+	private void checkFields(int size){
+
+		if(countFields() != size){
+			throw new IllegalStateException("The encoder gained fields while the segments were being written");
+		}
+	}
+
+	/**
+	 * <p>
+	 * Applies decorators to the mining fields of the models, and univariate stats to their model stats.
+	 * </p>
+	 */
+	private void decorate(DataDictionary dataDictionary, List<? extends Model> models){
+		Set<FieldName> decoratedNames = new HashSet<>();
+
+		for(Model model : models){
+			MiningSchema miningSchema = model.getMiningSchema();
+
+			Set<FieldName> activeNames = new HashSet<>();
+
+			List<MiningField> miningFields = miningSchema.getMiningFields();
+			for(MiningField miningField : miningFields){
+				FieldName name = miningField.getName();
+
+				activeNames.add(name);
+
+				List<Decorator> decorators = getDecorators(name);
+				if(decorators == null){
+					continue;
+				}
+
+				DataField dataField = getDataField(name);
+				if(dataField == null){
+					throw new IllegalArgumentException();
+				} // End if
+
+				// The data field has been decorated by an earlier model, so only the mining field is kept
+				if(!decoratedNames.add(name)){
+					dataField = PMMLObjectUtil.copy(dataField, DataField.class);
+				} else
+
+				// Decorators modify data fields, which must not leak into other encoders
+				if(isInherited(getDataFields(), name)){
+					DataField ownDataField = (DataField)getOwnField(name);
+
+					List<DataField> dataFields = dataDictionary.getDataFields();
+
+					int index = dataFields.indexOf(dataField);
+					if(index > -1){
+						dataFields.set(index, ownDataField);
+					}
+
+					dataField = ownDataField;
+				}
+
+				for(Decorator decorator : decorators){
+					decorator.decorate(dataField, miningField);
+				}
 			}
 
-			for(Decorator decorator : decorators){
-				decorator.decorate(dataField, miningField);
+			List<DataField> dataFields = dataDictionary.getDataFields();
+			for(DataField dataField : dataFields){
+				FieldName name = dataField.getName();
+
+				if(!activeNames.contains(name)){
+					continue;
+				}
+
+				UnivariateStats univariateStats = getUnivariateStats(name);
+				if(univariateStats == null){
+					continue;
+				}
+
+				ModelStats modelStats = model.getModelStats();
+				if(modelStats == null){
+					modelStats = new ModelStats();
+
+					model.setModelStats(modelStats);
+				}
+
+				modelStats.addUnivariateStats(univariateStats);
 			}
 		}
 
-		DataDictionary dataDictionary = pmml.getDataDictionary();
+	}
+
+	/**
+	 * @see PMMLEncoder#fork()
+	 */
+	@Override
+	public ModelEncoder fork(){
+		checkForkable();
 
-		List<DataField> dataFields = dataDictionary.getDataFields();
-		for(DataField dataField : dataFields){
-			UnivariateStats univariateStats = getUnivariateStats(dataField.getName());
+		ModelEncoder encoder = new ModelEncoder(new LayeredMap<>(getDataFields()), new LayeredMap<>(getDerivedFields()), new LayeredMap<>(getDefineFunctions()), HashMultiset.<FieldName>create(), new LayeredMap<>(this.decorators), new LayeredMap<>(this.univariateStats));
+		encoder.inherit(this);
+		encoder.setCompactNames(getCompactNames());
 
-			if(univariateStats == null){
-				continue;
-			}
+		return encoder;
+	}
+
+	/**
+	 * <p>
+	 * Merges the state of another encoder into this encoder.
+	 * </p>
+	 *
+	 * <p>
+	 * The decorators of a field are taken from the first encoder that declares them,
+	 * because the encoders of a sharded conversion share the same input schema.
+	 * Univariate stats that exist in both encoders must be structurally identical.
+	 * </p>
+	 */
+	@Override
+	public void merge(PMMLEncoder encoder){
+		super.merge(encoder);
+
+		if(encoder instanceof ModelEncoder){
+			ModelEncoder modelEncoder = (ModelEncoder)encoder;
 
-			ModelStats modelStats = model.getModelStats();
-			if(modelStats == null){
-				modelStats = new ModelStats();
+			Collection<Map.Entry<FieldName, List<Decorator>>> decoratorEntries = (modelEncoder.decorators).entrySet();
+			for(Map.Entry<FieldName, List<Decorator>> decoratorEntry : decoratorEntries){
+				FieldName name = decoratorEntry.getKey();
 
-				model.setModelStats(modelStats);
+				if(!this.decorators.containsKey(name)){
+					this.decorators.put(name, new ArrayList<>(decoratorEntry.getValue()));
+				}
 			}
 
-			modelStats.addUnivariateStats(univariateStats);
+			Collection<Map.Entry<FieldName, UnivariateStats>> univariateStatsEntries = (modelEncoder.univariateStats).entrySet();
+			for(Map.Entry<FieldName, UnivariateStats> univariateStatsEntry : univariateStatsEntries){
+				FieldName name = univariateStatsEntry.getKey();
+				UnivariateStats univariateStats = univariateStatsEntry.getValue();
+
+				UnivariateStats existingUnivariateStats = getUnivariateStats(name);
+				if(existingUnivariateStats != null){
+					checkMergeable(name.getValue(), existingUnivariateStats, univariateStats);
+
+					continue;
+				}
+
+				putUnivariateStats(name, univariateStats);
+			}
 		}
+	}
 
-		return pmml;
+	public boolean getCompactNames(){
+		return this.compactNames;
+	}
+
+	/**
+	 * <p>
+	 * If enabled, then derived field names that have been generated by this encoder are replaced with compact ones at the end of encoding.
+	 * The mapping back to the original names is available from {@link #getNameCompactor()}.
+	 * The same name compactor is reused by all encodings, so a name is compacted the same way in every PMML document.
+	 * </p>
+	 *
+	 * @see NameCompactor
+	 */
+	public void setCompactNames(boolean compactNames){
+		this.compactNames = compactNames;
+	}
+
+	/**
+	 * @return The name compactor, or <code>null</code> if no encoding has compacted names yet.
+	 */
+	public NameCompactor getNameCompactor(){
+		return this.nameCompactor;
+	}
+
+	protected Map<FieldName, List<Decorator>> getDecorators(){
+		return this.decorators;
 	}
 
 	public List<Decorator> getDecorators(FieldName name){
@@ -104,17 +428,29 @@ public class ModelEncoder extends PMMLEncoder {
 	}
 
 	public void addDecorator(FieldName name, Decorator decorator){
+		checkMutable();
+
 		List<Decorator> decorators = this.decorators.get(name);
 
 		if(decorators == null){
 			decorators = new ArrayList<>();
 
+			this.decorators.put(name, decorators);
+		} else
+
+		if(isInherited(this.decorators, name)){
+			decorators = new ArrayList<>(decorators);
+
 			this.decorators.put(name, decorators);
 		}
 
 		decorators.add(decorator);
 	}
 
+	protected Map<FieldName, UnivariateStats> getUnivariateStats(){
+		return this.univariateStats;
+	}
+
 	public UnivariateStats getUnivariateStats(FieldName name){
 		return this.univariateStats.get(name);
 	}
@@ -124,6 +460,8 @@ public class ModelEncoder extends PMMLEncoder {
 	}
 
 	public void putUnivariateStats(FieldName name, UnivariateStats univariateStats){
+		checkMutable();
+
 		this.univariateStats.put(name, univariateStats);
 	}
 }
\ No newline at end of file
@@ -141,13 +141,7 @@ public class ModelUtil {
 
 	static
 	public Output createProbabilityOutput(MathContext mathContext, CategoricalLabel categoricalLabel){
-		DataType dataType = DataType.DOUBLE;
-
-		if((MathContext.FLOAT).equals(mathContext)){
-			dataType = DataType.FLOAT;
-		}
-
-		return createProbabilityOutput(dataType, categoricalLabel);
+		return createProbabilityOutput(ValueUtil.getDataType(mathContext), categoricalLabel);
 	}
 
 	static
@@ -159,7 +153,8 @@ public class ModelUtil {
 
 	static
 	public OutputField createAffinityField(DataType dataType, String value){
-		return createAffinityField(FieldName.create("affinity(" + value + ")"), dataType, value);
+		// There is no encoder in scope. The name is instantiated directly, bypassing the JVM-wide cache of FieldName#create(String)
+		return createAffinityField(new FieldName("affinity(" + value + ")"), dataType, value);
 	}
 
 	static
@@ -199,7 +194,8 @@ public class ModelUtil {
 
 	static
 	public OutputField createProbabilityField(DataType dataType, String value){
-		return createProbabilityField(FieldName.create("probability(" + value + ")"), dataType, value);
+		// See #createAffinityField(DataType, String)
+		return createProbabilityField(new FieldName("probability(" + value + ")"), dataType, value);
 	}
 
 	static
@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.dmg.pmml.DataDictionary;
+import org.dmg.pmml.DataField;
+import org.dmg.pmml.DerivedField;
+import org.dmg.pmml.FieldName;
+import org.dmg.pmml.MiningField;
+import org.dmg.pmml.Model;
+import org.dmg.pmml.OutputField;
+import org.dmg.pmml.PMML;
+import org.dmg.pmml.PMMLObject;
+import org.dmg.pmml.Target;
+import org.dmg.pmml.neural_network.Connection;
+import org.dmg.pmml.neural_network.NeuralInput;
+import org.dmg.pmml.neural_network.NeuralNetwork;
+import org.dmg.pmml.neural_network.NeuralOutput;
+import org.dmg.pmml.neural_network.Neuron;
+
+/**
+ * <p>
+ * Replaces generated names with compact ones.
+ * </p>
+ *
+ * <p>
+ * The following are renamed:
+ * <ul>
+ *   <li>Derived fields (both global and local), whose names have been generated by the encoder.</li>
+ *   <li>Neural network entity identifiers (neural inputs and neurons).</li>
+ * </ul>
+ * Data fields, output fields and target fields are the public interface of the PMML document, and keep their names.
+ * </p>
+ *
+ * <p>
+ * The mappings are cumulative.
+ * A name that has been compacted once is compacted the same way in all later PMML documents,
+ * unless a later PMML document has a field that is literally named like the compact name (eg. "f0").
+ * Such names are reserved per PMML document, and the clashing name is given a new compact name.
+ * </p>
+ *
+ * @see PMMLEncoder#isGeneratedName(FieldName)
+ */
+public class NameCompactor implements Serializable {
+
+	private Map<FieldName, FieldName> names = new LinkedHashMap<>();
+
+	transient
+	private Set<FieldName> reservedNames = null;
+
+	transient
+	private Map<FieldName, FieldName> documentNames = null;
+
+	transient
+	private Map<NeuralNetwork, Map<String, String>> networkIds = null;
+
+	private Map<FieldName, FieldName> fieldNameMapping = new LinkedHashMap<>();
+
+	private Map<String, String> entityIdMapping = new LinkedHashMap<>();
+
+	private int nameCount = 0;
+
+	private int idCount = 0;
+
+
+	/**
+	 * <p>
+	 * Derived fields and field references are not renamed in place.
+	 * The path from the PMML document to every renamed field name is copied,
+	 * so that derived fields that are shared with the encoder (or with other PMML documents) stay intact.
+	 * </p>
+	 *
+	 * @param predicate A predicate that selects the derived field names that may be renamed.
+	 *
+	 * @return The PMML document, or its updated copy.
+	 *
+	 */
+	public PMML applyTo(PMML pmml, Predicate<FieldName> predicate){
+		this.reservedNames = new HashSet<>();
+		this.documentNames = new LinkedHashMap<>();
+		this.networkIds = new IdentityHashMap<>();
+
+		try {
+			DataDictionary dataDictionary = pmml.getDataDictionary();
+
+			List<DataField> dataFields = dataDictionary.getDataFields();
+			for(DataField dataField : dataFields){
+				reserveName(dataField.getName());
+			}
+
+			// Derived field names are compacted after all output fields and target fields have been reserved
+			List<FieldName> derivedNames = new ArrayList<>();
+
+			collect(pmml, null, derivedNames);
+
+			// Derived field names that are not compacted keep their names, just like data fields
+			for(FieldName derivedName : derivedNames){
+
+				if(!predicate.test(derivedName)){
+					reserveName(derivedName);
+				}
+			}
+
+			for(FieldName derivedName : derivedNames){
+
+				if(predicate.test(derivedName)){
+					addName(derivedName);
+				}
+			}
+
+			renameIds(pmml, null);
+
+			return PMMLObjectUtil.replaceFieldNames(pmml, PMML.class, this.documentNames, DerivedField.class);
+		} finally {
+			this.reservedNames = null;
+			this.documentNames = null;
+			this.networkIds = null;
+		}
+	}
+
+	private void collect(PMMLObject object, NeuralNetwork neuralNetwork, List<FieldName> derivedNames){
+
+		if(object instanceof NeuralNetwork){
+			neuralNetwork = (NeuralNetwork)object;
+
+			this.networkIds.put(neuralNetwork, new LinkedHashMap<String, String>());
+		} // End if
+
+		if(object instanceof DerivedField){
+			DerivedField derivedField = (DerivedField)object;
+
+			FieldName name = derivedField.getName();
+			if(name != null){
+				derivedNames.add(name);
+			}
+		} else
+
+		if(object instanceof OutputField){
+			OutputField outputField = (OutputField)object;
+
+			reserveName(outputField.getName());
+		} else
+
+		if(object instanceof Target){
+			Target target = (Target)object;
+
+			reserveName(target.getField());
+		} else
+
+		if(object instanceof MiningField){
+			MiningField miningField = (MiningField)object;
+
+			MiningField.UsageType usageType = miningField.getUsageType();
+			if(usageType != null){
+
+				switch(usageType){
+					case TARGET:
+					case PREDICTED:
+						reserveName(miningField.getName());
+						break;
+					default:
+						break;
+				}
+			}
+		} else
+
+		if(object instanceof NeuralInput){
+			NeuralInput neuralInput = (NeuralInput)object;
+
+			addId(neuralNetwork, neuralInput.getId());
+		} else
+
+		if(object instanceof Neuron){
+			Neuron neuron = (Neuron)object;
+
+			addId(neuralNetwork, neuron.getId());
+		}
+
+		List<Field> fields = PMMLObjectUtil.getInstanceFields(object.getClass());
+		for(Field field : fields){
+			Object value = PMMLObjectUtil.getFieldValue(field, object);
+
+			if(value instanceof PMMLObject){
+				collect((PMMLObject)value, neuralNetwork, derivedNames);
+			} else
+
+			if(value instanceof List){
+				List<?> values = (List<?>)value;
+
+				for(Object element : values){
+
+					if(element instanceof PMMLObject){
+						collect((PMMLObject)element, neuralNetwork, derivedNames);
+					}
+				}
+			}
+		}
+	}
+
+	private void renameIds(PMMLObject object, NeuralNetwork neuralNetwork){
+
+		if(object instanceof NeuralNetwork){
+			neuralNetwork = (NeuralNetwork)object;
+		} // End if
+
+		if(object instanceof NeuralInput){
+			NeuralInput neuralInput = (NeuralInput)object;
+
+			neuralInput.setId(getId(neuralNetwork, neuralInput.getId()));
+		} else
+
+		if(object instanceof Neuron){
+			Neuron neuron = (Neuron)object;
+
+			neuron.setId(getId(neuralNetwork, neuron.getId()));
+		} else
+
+		if(object instanceof Connection){
+			Connection connection = (Connection)object;
+
+			connection.setFrom(getId(neuralNetwork, connection.getFrom()));
+		} else
+
+		if(object instanceof NeuralOutput){
+			NeuralOutput neuralOutput = (NeuralOutput)object;
+
+			neuralOutput.setOutputNeuron(getId(neuralNetwork, neuralOutput.getOutputNeuron()));
+		}
+
+		List<Field> fields = PMMLObjectUtil.getInstanceFields(object.getClass());
+		for(Field field : fields){
+			Object value = PMMLObjectUtil.getFieldValue(field, object);
+
+			if(value instanceof PMMLObject){
+				renameIds((PMMLObject)value, neuralNetwork);
+			} else
+
+			if(value instanceof List){
+				List<?> values = (List<?>)value;
+
+				for(Object element : values){
+
+					if(element instanceof PMMLObject){
+						renameIds((PMMLObject)element, neuralNetwork);
+					}
+				}
+			}
+		}
+	}
+
+	private void reserveName(FieldName name){
+
+		if(name == null){
+			return;
+		}
+
+		this.reservedNames.add(name);
+	}
+
+	private void addName(FieldName name){
+
+		if(this.reservedNames.contains(name)){
+			return;
+		}
+
+		FieldName compactName = this.names.get(name);
+
+		// The earlier compact name is taken by a field of this PMML document
+		if(compactName != null && this.reservedNames.contains(compactName)){
+			compactName = null;
+		} // End if
+
+		if(compactName == null){
+
+			do {
+				compactName = new FieldName("f" + Integer.toString(this.nameCount++, 36));
+			} while(this.reservedNames.contains(compactName));
+
+			this.names.put(name, compactName);
+
+			this.fieldNameMapping.put(compactName, name);
+		}
+
+		this.documentNames.put(name, compactName);
+	}
+
+	private void addId(NeuralNetwork neuralNetwork, String id){
+		Map<String, String> ids = this.networkIds.get(neuralNetwork);
+
+		if(id == null || ids.containsKey(id)){
+			return;
+		}
+
+		String compactId = Integer.toString(this.idCount++, 36);
+
+		ids.put(id, compactId);
+
+		this.entityIdMapping.put(compactId, id);
+	}
+
+	private String getId(NeuralNetwork neuralNetwork, String id){
+		Map<String, String> ids = this.networkIds.get(neuralNetwork);
+
+		String compactId = ids.get(id);
+		if(compactId == null){
+			throw new IllegalArgumentException(id);
+		}
+
+		return compactId;
+	}
+
+	/**
+	 * @return A mapping from compact field names to original field names.
+	 * The mapping accumulates over all PMML documents that this name compactor has been applied to.
+	 */
+	public Map<FieldName, FieldName> getFieldNameMapping(){
+		return this.fieldNameMapping;
+	}
+
+	/**
+	 * @return A mapping from compact neural network entity identifiers to original entity identifiers.
+	 * Compact identifiers are unique across all PMML documents that this name compactor has been applied to.
+	 */
+	public Map<String, String> getEntityIdMapping(){
+		return this.entityIdMapping;
+	}
+}
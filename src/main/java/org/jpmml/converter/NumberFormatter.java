@@ -0,0 +1,609 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.math.BigInteger;
+
+/**
+ * <p>
+ * Shortest round-trip formatting of <code>float</code> and <code>double</code> values.
+ * </p>
+ *
+ * <p>
+ * The decimal significand is selected using the Schubfach algorithm by Raffaello Giulietti.
+ * It is the shortest one that parses back to the same binary value, and if there are several, then the one closest to it.
+ * The layout follows {@link Double#toString(double)} and {@link Float#toString(float)} (eg. <code>1.0</code>, <code>0.001</code>, <code>1.0E-4</code>, <code>1.0E7</code>).
+ * </p>
+ *
+ * <p>
+ * Values are written straight into a caller-supplied character buffer, which can be reused between calls.
+ * </p>
+ */
+public class NumberFormatter {
+
+	private NumberFormatter(){
+	}
+
+	static
+	public String toString(double value){
+		char[] buffer = new char[NumberFormatter.MAX_CHARS];
+
+		int length = format(value, buffer, 0);
+
+		return new String(buffer, 0, length);
+	}
+
+	static
+	public String toString(float value){
+		char[] buffer = new char[NumberFormatter.MAX_CHARS];
+
+		int length = format(value, buffer, 0);
+
+		return new String(buffer, 0, length);
+	}
+
+	/**
+	 * @param buffer A buffer that has at least {@link #MAX_CHARS} characters available after the offset.
+	 *
+	 * @return The position after the last written character.
+	 */
+	static
+	public int format(double value, char[] buffer, int offset){
+		long bits = Double.doubleToRawLongBits(value);
+
+		long t = bits & ((1L << 52) - 1);
+		int bq = (int)(bits >>> 52) & 0x7ff;
+
+		if(bq == 0x7ff){
+			return formatSpecial(t != 0, bits < 0, buffer, offset);
+		}
+
+		int pos = offset;
+
+		if(bits < 0){
+			buffer[pos++] = '-';
+		} // End if
+
+		if(bq != 0){
+			int mq = 1075 - bq;
+			long c = (1L << 52) | t;
+
+			// Integer values
+			if(0 < mq && mq < 53){
+				long f = c >> mq;
+
+				if((f << mq) == c){
+					return formatDecimal(f, 0, buffer, pos);
+				}
+			}
+
+			return formatDouble(-mq, c, 0, buffer, pos);
+		} // End if
+
+		if(t != 0){
+			return (t < 3 ? formatDouble(-1074, 10 * t, -1, buffer, pos) : formatDouble(-1074, t, 0, buffer, pos));
+		}
+
+		return formatZero(buffer, pos);
+	}
+
+	/**
+	 * @see #format(double, char[], int)
+	 */
+	static
+	public int format(float value, char[] buffer, int offset){
+		int bits = Float.floatToRawIntBits(value);
+
+		int t = bits & ((1 << 23) - 1);
+		int bq = (bits >>> 23) & 0xff;
+
+		if(bq == 0xff){
+			return formatSpecial(t != 0, bits < 0, buffer, offset);
+		}
+
+		int pos = offset;
+
+		if(bits < 0){
+			buffer[pos++] = '-';
+		} // End if
+
+		if(bq != 0){
+			int mq = 150 - bq;
+			int c = (1 << 23) | t;
+
+			// Integer values
+			if(0 < mq && mq < 24){
+				int f = c >> mq;
+
+				if((f << mq) == c){
+					return formatDecimal(f, 0, buffer, pos);
+				}
+			}
+
+			return formatDecimal(toDecimal(-mq, c, 0), buffer, pos);
+		} // End if
+
+		if(t != 0){
+			return formatDecimal(t < 8 ? toDecimal(-149, 10 * t, -1) : toDecimal(-149, t, 0), buffer, pos);
+		}
+
+		return formatZero(buffer, pos);
+	}
+
+	/**
+	 * <p>
+	 * Converts a <code>float</code> value to the <code>double</code> value that is closest to its shortest decimal representation.
+	 * </p>
+	 *
+	 * <p>
+	 * The result is the same as <code>Double.parseDouble(Float.toString(value))</code>,
+	 * but most values are converted exactly using a single floating-point multiplication or division.
+	 * </p>
+	 */
+	static
+	public double toDouble(float value){
+		int bits = Float.floatToRawIntBits(value);
+
+		int t = bits & ((1 << 23) - 1);
+		int bq = (bits >>> 23) & 0xff;
+
+		// Infinities and NaNs, and small integer values (including zeroes), whose shortest decimal representation is exact
+		if(bq == 0xff || (Math.abs(value) < (1 << 24) && value == (float)(int)value)){
+			return value;
+		}
+
+		long decimal;
+
+		if(bq != 0){
+			decimal = toDecimal(bq - 150, (1 << 23) | t, 0);
+		} else
+
+		{
+			decimal = (t < 8 ? toDecimal(-149, 10 * t, -1) : toDecimal(-149, t, 0));
+		}
+
+		double f = (double)(decimal >> 32);
+		int e = (int)decimal;
+
+		// Both operands are exact, so the result is correctly rounded
+		if(e >= 0 && e < NumberFormatter.DOUBLE_POW10.length){
+			f *= NumberFormatter.DOUBLE_POW10[e];
+		} else
+
+		if(e < 0 && -e < NumberFormatter.DOUBLE_POW10.length){
+			f /= NumberFormatter.DOUBLE_POW10[-e];
+		} else
+
+		{
+			return Double.parseDouble(toString(value));
+		}
+
+		return (bits < 0 ? -f : f);
+	}
+
+	static
+	private int formatDouble(int q, long c, int dk, char[] buffer, int pos){
+		int out = (int)c & 0x1;
+
+		long cb = c << 2;
+		long cbr = cb + 2;
+		long cbl;
+
+		int k;
+
+		if(c != (1L << 52) || q == -1074){
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else
+
+		{
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+
+		int h = q + flog2pow10(-k) + 2;
+
+		long g1 = NumberFormatter.G[2 * (k - NumberFormatter.K_MIN)];
+		long g0 = NumberFormatter.G[2 * (k - NumberFormatter.K_MIN) + 1];
+
+		long vb = rop(g1, g0, cb << h);
+		long vbl = rop(g1, g0, cbl << h);
+		long vbr = rop(g1, g0, cbr << h);
+
+		long s = vb >> 2;
+
+		if(s >= 100){
+			long sp10 = 10 * multiplyHigh(s, 115292150460684698L << 4);
+			long tp10 = sp10 + 10;
+
+			boolean upin = (vbl + out) <= (sp10 << 2);
+			boolean wpin = ((tp10 << 2) + out) <= vbr;
+
+			if(upin != wpin){
+				return formatDecimal(upin ? sp10 : tp10, k, buffer, pos);
+			}
+		}
+
+		long t = s + 1;
+
+		boolean uin = (vbl + out) <= (s << 2);
+		boolean win = ((t << 2) + out) <= vbr;
+
+		if(uin != win){
+			return formatDecimal(uin ? s : t, k + dk, buffer, pos);
+		}
+
+		long cmp = vb - ((s + t) << 1);
+
+		return formatDecimal((cmp < 0 || (cmp == 0 && (s & 0x1) == 0)) ? s : t, k + dk, buffer, pos);
+	}
+
+	/**
+	 * <p>
+	 * Computes the shortest decimal <code>f * 10<sup>e</sup></code>.
+	 * </p>
+	 *
+	 * @return The significand <code>f</code> in the upper 32 bits and the exponent <code>e</code> in the lower 32 bits.
+	 */
+	static
+	private long toDecimal(int q, int c, int dk){
+		int out = c & 0x1;
+
+		long cb = ((long)c) << 2;
+		long cbr = cb + 2;
+		long cbl;
+
+		int k;
+
+		if(c != (1 << 23) || q == -149){
+			cbl = cb - 2;
+			k = flog10pow2(q);
+		} else
+
+		{
+			cbl = cb - 1;
+			k = flog10threeQuartersPow2(q);
+		}
+
+		int h = q + flog2pow10(-k) + 33;
+
+		long g = NumberFormatter.G[2 * (k - NumberFormatter.K_MIN)] + 1;
+
+		int vb = rop(g, cb << h);
+		int vbl = rop(g, cbl << h);
+		int vbr = rop(g, cbr << h);
+
+		int s = vb >> 2;
+
+		if(s >= 100){
+			int sp10 = 10 * (int)((s * 1717986919L) >>> 34);
+			int tp10 = sp10 + 10;
+
+			boolean upin = (vbl + out) <= (sp10 << 2);
+			boolean wpin = ((tp10 << 2) + out) <= vbr;
+
+			if(upin != wpin){
+				return packDecimal(upin ? sp10 : tp10, k);
+			}
+		}
+
+		int t = s + 1;
+
+		boolean uin = (vbl + out) <= (s << 2);
+		boolean win = ((t << 2) + out) <= vbr;
+
+		if(uin != win){
+			return packDecimal(uin ? s : t, k + dk);
+		}
+
+		int cmp = vb - ((s + t) << 1);
+
+		return packDecimal((cmp < 0 || (cmp == 0 && (s & 0x1) == 0)) ? s : t, k + dk);
+	}
+
+	static
+	private long packDecimal(int f, int e){
+		return (((long)f) << 32) | (e & 0xFFFFFFFFL);
+	}
+
+	static
+	private int formatDecimal(long decimal, char[] buffer, int pos){
+		return formatDecimal(decimal >> 32, (int)decimal, buffer, pos);
+	}
+
+	/**
+	 * <p>
+	 * Writes the decimal <code>f * 10<sup>e</sup></code>.
+	 * </p>
+	 */
+	static
+	private int formatDecimal(long f, int e, char[] buffer, int pos){
+
+		while(f % 10 == 0){
+			f /= 10;
+			e++;
+		}
+
+		int n = 1;
+
+		while(n < NumberFormatter.POW10.length && f >= NumberFormatter.POW10[n]){
+			n++;
+		}
+
+		// The value is 0.d_1..d_n * 10^exp
+		int exp = e + n;
+
+		if(exp > 0 && exp <= 7){
+
+			if(n <= exp){
+				pos = writeDigits(f, n, buffer, pos);
+				pos = writeZeros(exp - n, buffer, pos);
+
+				buffer[pos++] = '.';
+				buffer[pos++] = '0';
+			} else
+
+			{
+				long divisor = NumberFormatter.POW10[n - exp];
+
+				pos = writeDigits(f / divisor, exp, buffer, pos);
+
+				buffer[pos++] = '.';
+
+				pos = writeDigits(f % divisor, n - exp, buffer, pos);
+			}
+		} else
+
+		if(exp > -3 && exp <= 0){
+			buffer[pos++] = '0';
+			buffer[pos++] = '.';
+
+			pos = writeZeros(-exp, buffer, pos);
+			pos = writeDigits(f, n, buffer, pos);
+		} else
+
+		{
+			long divisor = NumberFormatter.POW10[n - 1];
+
+			pos = writeDigits(f / divisor, 1, buffer, pos);
+
+			buffer[pos++] = '.';
+
+			if(n > 1){
+				pos = writeDigits(f % divisor, n - 1, buffer, pos);
+			} else
+
+			{
+				buffer[pos++] = '0';
+			}
+
+			buffer[pos++] = 'E';
+
+			int sciExp = exp - 1;
+
+			if(sciExp < 0){
+				buffer[pos++] = '-';
+
+				sciExp = -sciExp;
+			}
+
+			pos = writeDigits(sciExp, (sciExp >= 100 ? 3 : (sciExp >= 10 ? 2 : 1)), buffer, pos);
+		}
+
+		return pos;
+	}
+
+	/**
+	 * <p>
+	 * Writes exactly <code>n</code> digits (with leading zeros, if necessary).
+	 * </p>
+	 */
+	static
+	private int writeDigits(long value, int n, char[] buffer, int pos){
+
+		for(int i = pos + n - 1; i >= pos; i--){
+			buffer[i] = (char)('0' + (int)(value % 10));
+
+			value /= 10;
+		}
+
+		return pos + n;
+	}
+
+	static
+	private int writeZeros(int n, char[] buffer, int pos){
+
+		for(int i = 0; i < n; i++){
+			buffer[pos++] = '0';
+		}
+
+		return pos;
+	}
+
+	static
+	private int formatZero(char[] buffer, int pos){
+		buffer[pos++] = '0';
+		buffer[pos++] = '.';
+		buffer[pos++] = '0';
+
+		return pos;
+	}
+
+	static
+	private int formatSpecial(boolean nan, boolean negative, char[] buffer, int pos){
+		String string = (nan ? "NaN" : (negative ? "-Infinity" : "Infinity"));
+
+		string.getChars(0, string.length(), buffer, pos);
+
+		return pos + string.length();
+	}
+
+	static
+	private long rop(long g1, long g0, long cp){
+		long x1 = multiplyHigh(g0, cp);
+		long y0 = g1 * cp;
+		long y1 = multiplyHigh(g1, cp);
+		long z = (y0 >>> 1) + x1;
+		long vbp = y1 + (z >>> 63);
+
+		return vbp | (((z & NumberFormatter.MASK_63) + NumberFormatter.MASK_63) >>> 63);
+	}
+
+	static
+	private int rop(long g, long cp){
+		long x1 = multiplyHigh(g, cp);
+		long vbp = x1 >>> 31;
+
+		return (int)(vbp | (((x1 & NumberFormatter.MASK_32) + NumberFormatter.MASK_32) >>> 32));
+	}
+
+	/**
+	 * <p>
+	 * A port of <code>Math#multiplyHigh(long, long)</code>, which is not available in Java 8.
+	 * </p>
+	 */
+	static
+	private long multiplyHigh(long x, long y){
+		long x1 = x >> 32;
+		long x2 = x & 0xFFFFFFFFL;
+		long y1 = y >> 32;
+		long y2 = y & 0xFFFFFFFFL;
+
+		long z2 = x2 * y2;
+		long t = x1 * y2 + (z2 >>> 32);
+		long z1 = t & 0xFFFFFFFFL;
+		long z0 = t >> 32;
+		z1 += x2 * y1;
+
+		return x1 * y1 + z0 + (z1 >> 32);
+	}
+
+	/**
+	 * <p>
+	 * Computes <code>floor(log10(2<sup>e</sup>))</code>.
+	 * </p>
+	 */
+	static
+	private int flog10pow2(int e){
+		return (int)((e * 661971961083L) >> 41);
+	}
+
+	/**
+	 * <p>
+	 * Computes <code>floor(log10(3/4 * 2<sup>e</sup>))</code>.
+	 * </p>
+	 */
+	static
+	private int flog10threeQuartersPow2(int e){
+		return (int)((e * 661971961083L + -274743187321L) >> 41);
+	}
+
+	/**
+	 * <p>
+	 * Computes <code>floor(log2(10<sup>e</sup>))</code>.
+	 * </p>
+	 */
+	static
+	private int flog2pow10(int e){
+		return (int)((e * 913124641741L) >> 38);
+	}
+
+	/**
+	 * <p>
+	 * For every <code>k</code>, let <code>10<sup>-k</sup> = &beta; 2<sup>r</sup></code>, so that <code>2<sup>125</sup> &le; &beta; &lt; 2<sup>126</sup></code>.
+	 * The table holds <code>g = floor(&beta;) + 1</code> split into the upper 63 bits and the lower 63 bits.
+	 * </p>
+	 */
+	static
+	private long[] createG(){
+		long[] result = new long[2 * (NumberFormatter.K_MAX - NumberFormatter.K_MIN + 1)];
+
+		BigInteger mask = BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE);
+
+		for(int k = NumberFormatter.K_MIN; k <= NumberFormatter.K_MAX; k++){
+			int r = flog2pow10(-k) - 125;
+
+			BigInteger beta;
+
+			if(k <= 0){
+				beta = BigInteger.TEN.pow(-k);
+
+				beta = (r <= 0 ? beta.shiftLeft(-r) : beta.shiftRight(r));
+			} else
+
+			{
+				beta = BigInteger.ONE.shiftLeft(-r).divide(BigInteger.TEN.pow(k));
+			}
+
+			BigInteger g = beta.add(BigInteger.ONE);
+
+			result[2 * (k - NumberFormatter.K_MIN)] = (g.shiftRight(63)).longValue();
+			result[2 * (k - NumberFormatter.K_MIN) + 1] = (g.and(mask)).longValue();
+		}
+
+		return result;
+	}
+
+	static
+	private double[] createDoublePow10(){
+		double[] result = new double[23];
+
+		double value = 1d;
+
+		for(int i = 0; i < result.length; i++){
+			result[i] = value;
+
+			value *= 10d;
+		}
+
+		return result;
+	}
+
+	static
+	private long[] createPow10(){
+		long[] result = new long[19];
+
+		long value = 1L;
+
+		for(int i = 0; i < result.length; i++){
+			result[i] = value;
+
+			value *= 10L;
+		}
+
+		return result;
+	}
+
+	/**
+	 * The maximum number of characters written by a single format call.
+	 */
+	public static final int MAX_CHARS = 32;
+
+	private static final long MASK_63 = (1L << 63) - 1;
+	private static final long MASK_32 = (1L << 32) - 1;
+
+	private static final int K_MIN = -324;
+	private static final int K_MAX = 292;
+
+	private static final long[] G = createG();
+
+	private static final long[] POW10 = createPow10();
+
+	private static final double[] DOUBLE_POW10 = createDoublePow10();
+}
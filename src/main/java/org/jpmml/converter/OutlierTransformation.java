@@ -25,9 +25,12 @@ import org.dmg.pmml.OpType;
 abstract
 public class OutlierTransformation implements Transformation {
 
+	/**
+	 * @see AbstractTransformation#withPrefix(FieldName, String)
+	 */
 	@Override
 	public FieldName getName(FieldName name){
-		return FieldName.create("outlier");
+		return new FieldName("outlier");
 	}
 
 	@Override
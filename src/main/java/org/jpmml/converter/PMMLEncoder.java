@@ -18,12 +18,27 @@
  */
 package org.jpmml.converter;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Multiset;
 import org.dmg.pmml.DataDictionary;
 import org.dmg.pmml.DataField;
 import org.dmg.pmml.DataType;
@@ -33,20 +48,57 @@ import org.dmg.pmml.Expression;
 import org.dmg.pmml.Field;
 import org.dmg.pmml.FieldName;
 import org.dmg.pmml.Header;
+import org.dmg.pmml.Model;
 import org.dmg.pmml.OpType;
 import org.dmg.pmml.PMML;
 import org.dmg.pmml.TransformationDictionary;
 
-public class PMMLEncoder {
+public class PMMLEncoder implements Serializable {
 
-	private Map<FieldName, DataField> dataFields = new LinkedHashMap<>();
+	private Map<FieldName, DataField> dataFields = null;
 
-	private Map<FieldName, DerivedField> derivedFields = new LinkedHashMap<>();
+	private Map<FieldName, DerivedField> derivedFields = null;
 
-	private Map<String, DefineFunction> defineFunctions = new LinkedHashMap<>();
+	private Map<String, DefineFunction> defineFunctions = null;
 
+	private Multiset<FieldName> references = null;
+
+	transient
+	private Map<ExpressionKey, DerivedField> expressionDerivedFields = new HashMap<>();
+
+	transient
+	private Map<FieldName, Declaration> declarations = new LinkedHashMap<>();
+
+	private boolean pruneDerivedFields = false;
+
+	private PMMLEncoder parent = null;
+
+	transient
+	private ConcurrentMap<Feature, ContinuousFeature[]> continuousFeatures = createContinuousFeatureCache();
+
+	private ConcurrentMap<String, FieldName> names = new ConcurrentHashMap<>();
+
+	private boolean frozen = false;
+
+
+	public PMMLEncoder(){
+		this(new LinkedHashMap<FieldName, DataField>(), new LinkedHashMap<FieldName, DerivedField>(), new LinkedHashMap<String, DefineFunction>(), HashMultiset.<FieldName>create());
+	}
+
+	protected PMMLEncoder(Map<FieldName, DataField> dataFields, Map<FieldName, DerivedField> derivedFields, Map<String, DefineFunction> defineFunctions, Multiset<FieldName> references){
+
+		if(dataFields == null || derivedFields == null || defineFunctions == null || references == null){
+			throw new IllegalArgumentException();
+		}
+
+		this.dataFields = dataFields;
+		this.derivedFields = derivedFields;
+		this.defineFunctions = defineFunctions;
+		this.references = references;
+	}
 
 	public PMML encodePMML(){
+		materializeDerivedFields();
 
 		if(!Collections.disjoint(this.dataFields.keySet(), this.derivedFields.keySet())){
 			throw new IllegalArgumentException();
@@ -60,7 +112,31 @@ public class PMMLEncoder {
 			(dataDictionary.getDataFields()).addAll(dataFields);
 		}
 
-		List<DerivedField> derivedFields = new ArrayList<>(this.derivedFields.values());
+		Map<DerivedField, FieldName> canonicalNames = getCanonicalNames();
+		Map<FieldName, FieldName> aliases = getAliases(canonicalNames);
+
+		List<DerivedField> derivedFields = new ArrayList<>(canonicalNames.size());
+
+		boolean pruneDerivedFields = getPruneDerivedFields();
+
+		Collection<DerivedField> canonicalDerivedFields = canonicalNames.keySet();
+
+		Multiset<DerivedField> referenceCounts = (pruneDerivedFields ? countReferences(canonicalDerivedFields) : null);
+
+		for(DerivedField derivedField : canonicalDerivedFields){
+
+			if(pruneDerivedFields && referenceCounts.count(derivedField) == 0){
+				continue;
+			} // End if
+
+			// Takes the canonical name, and references canonical names
+			if(!aliases.isEmpty()){
+				derivedField = PMMLObjectUtil.replaceFieldNames(derivedField, DerivedField.class, aliases, DerivedField.class);
+			}
+
+			derivedFields.add(derivedField);
+		}
+
 		List<DefineFunction> defineFunctions = new ArrayList<>(this.defineFunctions.values());
 
 		TransformationDictionary transformationDictionary = null;
@@ -94,6 +170,8 @@ public class PMMLEncoder {
 	}
 
 	public void addDataField(DataField dataField){
+		checkMutable();
+
 		FieldName name = dataField.getName();
 
 		checkName(name);
@@ -118,27 +196,337 @@ public class PMMLEncoder {
 	}
 
 	public DerivedField getDerivedField(FieldName name){
-		return this.derivedFields.get(name);
+		DerivedField derivedField = this.derivedFields.get(name);
+
+		if(derivedField == null){
+			Declaration declaration = this.declarations.remove(name);
+
+			if(declaration != null){
+				derivedField = createDerivedField(name, declaration.getOpType(), declaration.getDataType(), (declaration.getExpressionSupplier()).get());
+			}
+		}
+
+		return derivedField;
 	}
 
 	public void addDerivedField(DerivedField derivedField){
+		checkMutable();
+
 		FieldName name = derivedField.getName();
 
 		checkName(name);
 
+		// Define-before-use: the fields that the expression references must precede it in the transformation dictionary
+		materializeReferencedDerivedFields(derivedField.getExpression());
+
 		this.derivedFields.put(name, derivedField);
 	}
 
+	/**
+	 * <p>
+	 * Creates a derived field.
+	 * </p>
+	 *
+	 * <p>
+	 * If a derived field with the same operational type, data type and a structurally identical expression has been created earlier,
+	 * then the new name is registered as an alias, and the earlier derived field is returned instead.
+	 * Aliases are resolved by {@link #getDerivedField(FieldName)}.
+	 * </p>
+	 *
+	 * <p>
+	 * When the PMML document is encoded, a group of aliased names is represented by a single derived field,
+	 * which takes the lexicographically lowest name of the group (regardless of the order of creation).
+	 * All references to other names of the group are replaced with references to it.
+	 * </p>
+	 *
+	 * @see #resolveAliases(Model)
+	 */
 	public DerivedField createDerivedField(FieldName name, OpType opType, DataType dataType, Expression expression){
+		checkMutable();
+
+		ExpressionKey key = (expression != null ? new ExpressionKey(opType, dataType, expression) : null);
+
+		if(key != null){
+			DerivedField derivedField = this.expressionDerivedFields.get(key);
+
+			if(derivedField != null){
+				checkName(name);
+
+				this.derivedFields.put(name, derivedField);
+
+				return derivedField;
+			}
+		}
+
 		DerivedField derivedField = new DerivedField(opType, dataType)
 			.setName(name)
 			.setExpression(expression);
 
 		addDerivedField(derivedField);
 
+		if(key != null){
+			this.expressionDerivedFields.put(key, derivedField);
+		}
+
+		return derivedField;
+	}
+
+	/**
+	 * <p>
+	 * Gets the named derived field, or creates it if it does not exist yet.
+	 * </p>
+	 *
+	 * @param expressionSupplier A supplier of the expression. Invoked only when the derived field needs to be created.
+	 */
+	public DerivedField ensureDerivedField(FieldName name, OpType opType, DataType dataType, Supplier<? extends Expression> expressionSupplier){
+		DerivedField derivedField = getDerivedField(name);
+
+		if(derivedField == null){
+			derivedField = createDerivedField(name, opType, dataType, expressionSupplier.get());
+		}
+
 		return derivedField;
 	}
 
+	/**
+	 * <p>
+	 * Declares a derived field, unless a derived field or a declaration by that name exists already.
+	 * </p>
+	 *
+	 * <p>
+	 * The derived field is materialized when it is requested using {@link #getDerivedField(FieldName)},
+	 * or when the PMML document is encoded.
+	 * If derived field pruning is enabled, then unreferenced declarations are never materialized.
+	 * </p>
+	 *
+	 * @param expressionSupplier A supplier of the expression. Invoked at most once.
+	 * Any field references that the expression contains should be registered by the supplier (eg. by using {@link Feature#ref()}).
+	 */
+	public void declareDerivedField(FieldName name, OpType opType, DataType dataType, Supplier<? extends Expression> expressionSupplier){
+
+		if(this.derivedFields.containsKey(name) || this.declarations.containsKey(name)){
+			return;
+		}
+
+		checkMutable();
+
+		checkName(name);
+
+		this.declarations.put(name, new Declaration(opType, dataType, expressionSupplier));
+	}
+
+	/**
+	 * <p>
+	 * Gets the memoized result of a feature conversion, or performs the conversion if it has not been performed yet.
+	 * Features are compared by identity, and are held weakly.
+	 * </p>
+	 *
+	 * @param dataType The target data type, or <code>null</code> for the default conversion.
+	 */
+	ContinuousFeature getContinuousFeature(Feature feature, DataType dataType, Supplier<? extends ContinuousFeature> continuousFeatureSupplier){
+		ContinuousFeature[] continuousFeatures = this.continuousFeatures.get(feature);
+
+		if(continuousFeatures == null){
+			continuousFeatures = new ContinuousFeature[PMMLEncoder.DATATYPES.length + 1];
+
+			ContinuousFeature[] existingContinuousFeatures = this.continuousFeatures.putIfAbsent(feature, continuousFeatures);
+			if(existingContinuousFeatures != null){
+				continuousFeatures = existingContinuousFeatures;
+			}
+		}
+
+		int index = (dataType != null ? (dataType.ordinal() + 1) : 0);
+
+		ContinuousFeature continuousFeature = continuousFeatures[index];
+		if(continuousFeature == null){
+			continuousFeature = continuousFeatureSupplier.get();
+
+			// A weakly held feature must not be strongly reachable from its own cache entry
+			if(continuousFeature != feature){
+				continuousFeatures[index] = continuousFeature;
+			}
+		}
+
+		return continuousFeature;
+	}
+
+	/**
+	 * <p>
+	 * Creates a field name that is scoped to this encoder.
+	 * </p>
+	 *
+	 * <p>
+	 * Equal names are deduplicated for the lifetime of this encoder (and its forks).
+	 * Unlike {@link FieldName#create(String)}, names are not retained in a JVM-wide cache,
+	 * so they become eligible for garbage collection together with this encoder and the PMML documents it produced.
+	 * </p>
+	 *
+	 * @see FeatureUtil#createName(PMMLEncoder, String)
+	 */
+	public FieldName createName(String value){
+		FieldName name = (this.parent != null ? this.parent.findName(value) : null);
+
+		if(name != null){
+			return name;
+		}
+
+		return this.names.computeIfAbsent(value, FieldName::new);
+	}
+
+	/**
+	 * @return <code>true</code> if the name has been created by {@link #createName(String)} of this encoder (or its ancestors, or merged encoders), <code>false</code> otherwise.
+	 */
+	public boolean isGeneratedName(FieldName name){
+		FieldName generatedName = findName(name.getValue());
+
+		return (generatedName != null) && (generatedName).equals(name);
+	}
+
+	private FieldName findName(String value){
+		FieldName name = this.names.get(value);
+
+		if(name == null && this.parent != null){
+			name = this.parent.findName(value);
+		}
+
+		return name;
+	}
+
+	/**
+	 * <p>
+	 * Replaces references to aliased derived field names with references to their canonical names.
+	 * </p>
+	 *
+	 * <p>
+	 * The model is not modified.
+	 * If it (or any of its descendants) references an aliased name, then the affected path is copied.
+	 * </p>
+	 *
+	 * @return The model, or its updated copy.
+	 *
+	 * @see #createDerivedField(FieldName, OpType, DataType, Expression)
+	 */
+	public Model resolveAliases(Model model){
+		Map<FieldName, FieldName> aliases = getAliases();
+
+		if(aliases.isEmpty()){
+			return model;
+		}
+
+		return PMMLObjectUtil.replaceFieldNames(model, Model.class, aliases);
+	}
+
+	/**
+	 * <p>
+	 * Counts the references to distinct derived fields, as if all unreferenced derived fields had been removed.
+	 * </p>
+	 *
+	 * <p>
+	 * Removing a derived field releases the references that its expression holds,
+	 * which may leave other derived fields unreferenced in turn.
+	 * </p>
+	 */
+	private Multiset<DerivedField> countReferences(Collection<DerivedField> derivedFields){
+		Multiset<DerivedField> result = HashMultiset.create();
+
+		Collection<Map.Entry<FieldName, DerivedField>> entries = (this.derivedFields).entrySet();
+		for(Map.Entry<FieldName, DerivedField> entry : entries){
+			result.add(entry.getValue(), getReferenceCount(entry.getKey()));
+		}
+
+		Deque<DerivedField> unreferencedDerivedFields = new ArrayDeque<>();
+
+		for(DerivedField derivedField : derivedFields){
+
+			if(result.count(derivedField) == 0){
+				unreferencedDerivedFields.add(derivedField);
+			}
+		}
+
+		while(!unreferencedDerivedFields.isEmpty()){
+			DerivedField derivedField = unreferencedDerivedFields.removeFirst();
+
+			Expression expression = derivedField.getExpression();
+			if(expression == null){
+				continue;
+			}
+
+			Multiset<FieldName> names = HashMultiset.create();
+
+			PMMLObjectUtil.collectFieldNames(expression, names);
+
+			for(Multiset.Entry<FieldName> entry : names.entrySet()){
+				DerivedField referencedDerivedField = this.derivedFields.get(entry.getElement());
+
+				if(referencedDerivedField == null){
+					continue;
+				}
+
+				int count = result.count(referencedDerivedField);
+				if(count == 0){
+					continue;
+				}
+
+				result.setCount(referencedDerivedField, Math.max(count - entry.getCount(), 0));
+
+				if(result.count(referencedDerivedField) == 0){
+					unreferencedDerivedFields.addLast(referencedDerivedField);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return A mapping from distinct derived fields (in the order of creation) to their canonical names.
+	 */
+	private Map<DerivedField, FieldName> getCanonicalNames(){
+		// PMML class model objects are compared by identity
+		Map<DerivedField, FieldName> result = new LinkedHashMap<>();
+
+		Collection<Map.Entry<FieldName, DerivedField>> entries = (this.derivedFields).entrySet();
+		for(Map.Entry<FieldName, DerivedField> entry : entries){
+			FieldName name = entry.getKey();
+			DerivedField derivedField = entry.getValue();
+
+			FieldName canonicalName = result.get(derivedField);
+			if(canonicalName == null || (name.getValue()).compareTo(canonicalName.getValue()) < 0){
+				result.put(derivedField, name);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return A mapping from aliased names to canonical names.
+	 *
+	 * @see #resolveAliases(Model)
+	 */
+	protected Map<FieldName, FieldName> getAliases(){
+		return getAliases(getCanonicalNames());
+	}
+
+	/**
+	 * @return A mapping from aliased names to canonical names.
+	 */
+	private Map<FieldName, FieldName> getAliases(Map<DerivedField, FieldName> canonicalNames){
+		Map<FieldName, FieldName> result = new HashMap<>();
+
+		Collection<Map.Entry<FieldName, DerivedField>> entries = (this.derivedFields).entrySet();
+		for(Map.Entry<FieldName, DerivedField> entry : entries){
+			FieldName name = entry.getKey();
+			FieldName canonicalName = canonicalNames.get(entry.getValue());
+
+			if(!(name).equals(canonicalName)){
+				result.put(name, canonicalName);
+			}
+		}
+
+		return result;
+	}
+
 	public Field<?> getField(FieldName name){
 		DataField dataField = getDataField(name);
 		DerivedField derivedField = getDerivedField(name);
@@ -155,7 +543,7 @@ public class PMMLEncoder {
 	}
 
 	public Field<?> toContinuous(FieldName name){
-		Field<?> field = getField(name);
+		Field<?> field = getOwnField(name);
 
 		DataType dataType = field.getDataType();
 		switch(dataType){
@@ -173,7 +561,7 @@ public class PMMLEncoder {
 	}
 
 	public Field<?> toCategorical(FieldName name, List<String> values){
-		Field<?> field = getField(name);
+		Field<?> field = getOwnField(name);
 
 		dataField:
 		if(field instanceof DataField){
@@ -197,6 +585,55 @@ public class PMMLEncoder {
 		return field;
 	}
 
+	public int getReferenceCount(FieldName name){
+		int result = this.references.count(name);
+
+		if(this.parent != null){
+			result += this.parent.getReferenceCount(name);
+		}
+
+		return result;
+	}
+
+	/**
+	 * <p>
+	 * Registers a use of the field.
+	 * </p>
+	 *
+	 * <p>
+	 * Application code that references fields by name (instead of going through {@link Feature#ref()}, {@link FeatureUtil#addReference(Feature)} etc.)
+	 * must register the use when derived field pruning is enabled.
+	 * </p>
+	 *
+	 * <p>
+	 * A pending declaration of the field is materialized, so that the field is defined before its first use.
+	 * </p>
+	 *
+	 * <p>
+	 * Reference counting is bookkeeping, and is permitted on a frozen encoder.
+	 * However, the references that are registered with a frozen encoder are seen by all its forks.
+	 * Features should be {@link Feature#rebind(PMMLEncoder) rebound} to a fork, so that their references are registered with the fork only.
+	 * </p>
+	 */
+	public void addReference(FieldName name){
+		this.references.add(name);
+
+		materializeDerivedField(name);
+	}
+
+	public boolean getPruneDerivedFields(){
+		return this.pruneDerivedFields;
+	}
+
+	/**
+	 * <p>
+	 * If enabled, then {@link #encodePMML()} omits derived fields whose reference count is zero.
+	 * </p>
+	 */
+	public void setPruneDerivedFields(boolean pruneDerivedFields){
+		this.pruneDerivedFields = pruneDerivedFields;
+	}
+
 	public DefineFunction getDefineFunction(String name){
 		return this.defineFunctions.get(name);
 	}
@@ -208,13 +645,336 @@ public class PMMLEncoder {
 			throw new NullPointerException();
 		} // End if
 
-		if(this.defineFunctions.containsKey(name)){
+		checkMutable();
+
+		DefineFunction existingDefineFunction = this.defineFunctions.get(name);
+		if(existingDefineFunction != null){
+
+			// Re-adding an identical function is a no-op
+			if(PMMLObjectUtil.deepEquals(existingDefineFunction, defineFunction)){
+				return;
+			}
+
 			throw new IllegalArgumentException(name);
 		}
 
 		this.defineFunctions.put(name, defineFunction);
 	}
 
+	/**
+	 * <p>
+	 * Returns <code>true</code> if fields and features can be registered with this encoder from multiple threads concurrently.
+	 * </p>
+	 *
+	 * @see ConcurrentModelEncoder
+	 */
+	public boolean isThreadSafe(){
+		return false;
+	}
+
+	public boolean isFrozen(){
+		return this.frozen;
+	}
+
+	/**
+	 * <p>
+	 * Makes this encoder read-only, so that it can serve as a shared base for {@link #fork() forked} encoders.
+	 * All pending derived field declarations are materialized first.
+	 * </p>
+	 */
+	public void freeze(){
+		materializeAllDerivedFields();
+
+		// Forks may register references concurrently
+		if(!(this.references instanceof ConcurrentHashMultiset)){
+			this.references = ConcurrentHashMultiset.create(this.references);
+		}
+
+		this.frozen = true;
+	}
+
+	/**
+	 * <p>
+	 * Merges the fields, functions and field reference counts of another encoder into this encoder.
+	 * The other encoder is typically the result of converting a disjoint part of a larger model (eg. a slice of an ensemble's members) in a separate process.
+	 * </p>
+	 *
+	 * <p>
+	 * Fields and functions that exist in both encoders must be structurally identical.
+	 * The time complexity is linear in the number of fields and functions.
+	 * </p>
+	 *
+	 * @throws IllegalArgumentException If a field or a function is in conflict.
+	 *
+	 * @see ModelEncoder#merge(PMMLEncoder)
+	 */
+	public void merge(PMMLEncoder encoder){
+		checkMutable();
+
+		materializeAllDerivedFields();
+		encoder.materializeAllDerivedFields();
+
+		Collection<DataField> dataFields = (encoder.dataFields).values();
+		for(DataField dataField : dataFields){
+			FieldName name = dataField.getName();
+
+			DataField existingDataField = getDataField(name);
+			if(existingDataField != null){
+				checkMergeable(name.getValue(), existingDataField, dataField);
+
+				continue;
+			}
+
+			addDataField(dataField);
+		}
+
+		Collection<Map.Entry<FieldName, DerivedField>> entries = (encoder.derivedFields).entrySet();
+
+		// Canonical derived fields first, aliases second
+		for(int pass = 0; pass < 2; pass++){
+
+			for(Map.Entry<FieldName, DerivedField> entry : entries){
+				FieldName name = entry.getKey();
+				DerivedField derivedField = entry.getValue();
+
+				boolean alias = !(name).equals(derivedField.getName());
+				if(alias != (pass > 0)){
+					continue;
+				}
+
+				DerivedField existingDerivedField = getDerivedField(name);
+				if(existingDerivedField != null){
+					checkMergeable(name.getValue(), existingDerivedField, derivedField);
+
+					continue;
+				} // End if
+
+				if(alias){
+					checkName(name);
+
+					this.derivedFields.put(name, getDerivedField(derivedField.getName()));
+				} else
+
+				{
+					addDerivedField(derivedField);
+
+					Expression expression = derivedField.getExpression();
+					if(expression != null){
+						ExpressionKey key = new ExpressionKey(derivedField.getOpType(), derivedField.getDataType(), expression);
+
+						if(!this.expressionDerivedFields.containsKey(key)){
+							this.expressionDerivedFields.put(key, derivedField);
+						}
+					}
+				}
+			}
+		}
+
+		Collection<DefineFunction> defineFunctions = (encoder.defineFunctions).values();
+		for(DefineFunction defineFunction : defineFunctions){
+			addDefineFunction(defineFunction);
+		}
+
+		this.references.addAll(encoder.references);
+
+		Collection<FieldName> names = (encoder.names).values();
+		for(FieldName name : names){
+			this.names.putIfAbsent(name.getValue(), name);
+		}
+	}
+
+	private void materializeAllDerivedFields(){
+
+		while(!this.declarations.isEmpty()){
+			List<FieldName> names = new ArrayList<>(this.declarations.keySet());
+
+			for(FieldName name : names){
+				getDerivedField(name);
+			}
+		}
+	}
+
+	private void writeObject(ObjectOutputStream os) throws IOException {
+		// Declarations hold expression suppliers, which are not serializable
+		materializeAllDerivedFields();
+
+		os.defaultWriteObject();
+	}
+
+	private void readObject(ObjectInputStream is) throws ClassNotFoundException, IOException {
+		is.defaultReadObject();
+
+		this.expressionDerivedFields = new HashMap<>();
+		this.declarations = new LinkedHashMap<>();
+		this.continuousFeatures = createContinuousFeatureCache();
+
+		Collection<Map.Entry<FieldName, DerivedField>> entries = (this.derivedFields).entrySet();
+		for(Map.Entry<FieldName, DerivedField> entry : entries){
+			FieldName name = entry.getKey();
+			DerivedField derivedField = entry.getValue();
+
+			Expression expression = derivedField.getExpression();
+			if(!(name).equals(derivedField.getName()) || expression == null){
+				continue;
+			}
+
+			ExpressionKey key = new ExpressionKey(derivedField.getOpType(), derivedField.getDataType(), expression);
+
+			if(!this.expressionDerivedFields.containsKey(key)){
+				this.expressionDerivedFields.put(key, derivedField);
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Creates a child encoder that sees all the fields and functions of this (frozen) encoder,
+	 * and stores its own additions separately.
+	 * </p>
+	 *
+	 * <p>
+	 * PMML objects are shared between the two.
+	 * A field is copied into the child encoder before it is modified (eg. when changing its operational type or adding valid values).
+	 * Features that are bound to this encoder should be {@link Feature#rebind(PMMLEncoder) rebound} to the child encoder before use.
+	 * </p>
+	 *
+	 * @throws IllegalStateException If this encoder is not frozen.
+	 */
+	public PMMLEncoder fork(){
+		checkForkable();
+
+		PMMLEncoder encoder = new PMMLEncoder(new LayeredMap<>(this.dataFields), new LayeredMap<>(this.derivedFields), new LayeredMap<>(this.defineFunctions), HashMultiset.<FieldName>create());
+		encoder.inherit(this);
+
+		return encoder;
+	}
+
+	protected void checkForkable(){
+
+		if(!isFrozen()){
+			throw new IllegalStateException("Encoder is not frozen");
+		}
+	}
+
+	protected void inherit(PMMLEncoder parent){
+		this.parent = parent;
+
+		this.expressionDerivedFields = new LayeredMap<>(parent.expressionDerivedFields);
+		this.pruneDerivedFields = parent.pruneDerivedFields;
+	}
+
+	protected void checkMutable(){
+
+		if(isFrozen()){
+			throw new IllegalStateException("Encoder is frozen");
+		}
+	}
+
+	/**
+	 * <p>
+	 * Gets the named field for modification.
+	 * A field that is inherited from the parent encoder is replaced with a copy.
+	 * </p>
+	 */
+	protected Field<?> getOwnField(FieldName name){
+		checkMutable();
+
+		Field<?> field = getField(name);
+
+		if(field instanceof DataField){
+			DataField dataField = (DataField)field;
+
+			if(isInherited(this.dataFields, name)){
+				dataField = PMMLObjectUtil.copy(dataField, DataField.class);
+
+				this.dataFields.put(name, dataField);
+			}
+
+			return dataField;
+		} else
+
+		if(field instanceof DerivedField){
+			DerivedField derivedField = (DerivedField)field;
+
+			if(isInherited(this.derivedFields, derivedField.getName())){
+				DerivedField ownDerivedField = PMMLObjectUtil.copy(derivedField, DerivedField.class);
+
+				// All aliases of the derived field must switch over to the copy
+				replaceValues(this.derivedFields, derivedField, ownDerivedField);
+				replaceValues(this.expressionDerivedFields, derivedField, ownDerivedField);
+
+				derivedField = ownDerivedField;
+			}
+
+			return derivedField;
+		}
+
+		return field;
+	}
+
+	/**
+	 * <p>
+	 * Materializes pending derived field declarations.
+	 * Materializing one declaration may reference (and declare) others, so the process is repeated until there is no more work.
+	 * </p>
+	 */
+	protected void materializeDerivedFields(){
+		boolean pruneDerivedFields = getPruneDerivedFields();
+
+		while(true){
+			List<FieldName> names = new ArrayList<>();
+
+			for(FieldName name : this.declarations.keySet()){
+
+				if(pruneDerivedFields && getReferenceCount(name) == 0){
+					continue;
+				}
+
+				names.add(name);
+			}
+
+			if(names.isEmpty()){
+				break;
+			}
+
+			for(FieldName name : names){
+				getDerivedField(name);
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Materializes the pending derived field declarations that the expression references.
+	 * </p>
+	 */
+	private void materializeReferencedDerivedFields(Expression expression){
+
+		if(expression == null || this.declarations.isEmpty()){
+			return;
+		}
+
+		Multiset<FieldName> names = HashMultiset.create();
+
+		PMMLObjectUtil.collectFieldNames(expression, names);
+
+		for(FieldName name : names.elementSet()){
+			materializeDerivedField(name);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Materializes the pending declaration of the named derived field (if any).
+	 * </p>
+	 */
+	protected void materializeDerivedField(FieldName name){
+
+		if(this.declarations.containsKey(name)){
+			getDerivedField(name);
+		}
+	}
+
 	protected Map<FieldName, DataField> getDataFields(){
 		return this.dataFields;
 	}
@@ -223,14 +983,102 @@ public class PMMLEncoder {
 		return this.derivedFields;
 	}
 
+	protected Map<String, DefineFunction> getDefineFunctions(){
+		return this.defineFunctions;
+	}
+
+	protected PMMLEncoder getParent(){
+		return this.parent;
+	}
+
+	static
+	private ConcurrentMap<Feature, ContinuousFeature[]> createContinuousFeatureCache(){
+		return new MapMaker()
+			.weakKeys()
+			.makeMap();
+	}
+
+	static
+	protected void checkMergeable(String name, Object left, Object right){
+
+		if(!PMMLObjectUtil.deepEquals(left, right)){
+			throw new IllegalArgumentException("Conflicting definitions for " + name);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Replaces all mappings to the value (compared by identity) with mappings to the new value.
+	 * </p>
+	 */
+	static
+	private <K, V> void replaceValues(Map<K, V> map, V value, V newValue){
+		List<K> keys = new ArrayList<>();
+
+		Collection<Map.Entry<K, V>> entries = map.entrySet();
+		for(Map.Entry<K, V> entry : entries){
+
+			if(entry.getValue() == value){
+				keys.add(entry.getKey());
+			}
+		}
+
+		for(K key : keys){
+			map.put(key, newValue);
+		}
+	}
+
+	static
+	protected boolean isInherited(Map<?, ?> map, Object key){
+
+		if(map instanceof LayeredMap){
+			LayeredMap<?, ?> layeredMap = (LayeredMap<?, ?>)map;
+
+			return !layeredMap.isOwn(key);
+		}
+
+		return false;
+	}
+
 	private void checkName(FieldName name){
 
 		if(name == null){
 			throw new NullPointerException();
 		} // End if
 
-		if(this.dataFields.containsKey(name) || this.derivedFields.containsKey(name)){
+		if(this.dataFields.containsKey(name) || this.derivedFields.containsKey(name) || this.declarations.containsKey(name)){
 			throw new IllegalArgumentException(name.getValue());
 		}
 	}
+
+	static
+	private class Declaration {
+
+		private OpType opType = null;
+
+		private DataType dataType = null;
+
+		private Supplier<? extends Expression> expressionSupplier = null;
+
+
+		private Declaration(OpType opType, DataType dataType, Supplier<? extends Expression> expressionSupplier){
+			this.opType = opType;
+			this.dataType = dataType;
+			this.expressionSupplier = expressionSupplier;
+		}
+
+		public OpType getOpType(){
+			return this.opType;
+		}
+
+		public DataType getDataType(){
+			return this.dataType;
+		}
+
+		public Supplier<? extends Expression> getExpressionSupplier(){
+			return this.expressionSupplier;
+		}
+	}
+
+	private static final DataType[] DATATYPES = DataType.values();
 }
\ No newline at end of file
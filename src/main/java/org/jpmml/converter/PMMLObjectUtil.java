@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.google.common.collect.Multiset;
+import org.dmg.pmml.DefineFunction;
+import org.dmg.pmml.FieldName;
+import org.dmg.pmml.PMMLObject;
+
+public class PMMLObjectUtil {
+
+	private PMMLObjectUtil(){
+	}
+
+	/**
+	 * <p>
+	 * Gets the instance fields of a PMML class,
+	 * excluding the ones that are declared by {@link PMMLObject} itself (eg. SAX locator information).
+	 * </p>
+	 */
+	static
+	public List<Field> getInstanceFields(Class<?> clazz){
+		return PMMLObjectUtil.INSTANCE_FIELDS.get(clazz);
+	}
+
+	static
+	public Object getFieldValue(Field field, Object object){
+
+		try {
+			return field.get(object);
+		} catch(IllegalAccessException iae){
+			throw new RuntimeException(iae);
+		}
+	}
+
+	static
+	public void setFieldValue(Field field, Object object, Object value){
+
+		try {
+			field.set(object, value);
+		} catch(IllegalAccessException iae){
+			throw new RuntimeException(iae);
+		}
+	}
+
+	static
+	public int deepHashCode(Object value){
+
+		if(value instanceof PMMLObject){
+			Class<?> clazz = value.getClass();
+
+			int result = clazz.hashCode();
+
+			List<Field> fields = getInstanceFields(clazz);
+			for(Field field : fields){
+				result = (31 * result) + deepHashCode(getFieldValue(field, value));
+			}
+
+			return result;
+		} else
+
+		if(value instanceof List){
+			List<?> values = (List<?>)value;
+
+			int result = 1;
+
+			for(Object element : values){
+				result = (31 * result) + deepHashCode(element);
+			}
+
+			return result;
+		}
+
+		return Objects.hashCode(value);
+	}
+
+	/**
+	 * <p>
+	 * Compares two PMML objects member-wise.
+	 * PMML class model objects do not override {@link Object#equals(Object)} and {@link Object#hashCode()}.
+	 * </p>
+	 */
+	static
+	public boolean deepEquals(Object left, Object right){
+
+		if(left == right){
+			return true;
+		} // End if
+
+		if(left == null || right == null){
+			return false;
+		} // End if
+
+		if(left instanceof PMMLObject){
+
+			if(!(left.getClass()).equals(right.getClass())){
+				return false;
+			}
+
+			List<Field> fields = getInstanceFields(left.getClass());
+			for(Field field : fields){
+
+				if(!deepEquals(getFieldValue(field, left), getFieldValue(field, right))){
+					return false;
+				}
+			}
+
+			return true;
+		} else
+
+		if(left instanceof List){
+
+			if(!(right instanceof List)){
+				return false;
+			}
+
+			List<?> leftValues = (List<?>)left;
+			List<?> rightValues = (List<?>)right;
+
+			if(leftValues.size() != rightValues.size()){
+				return false;
+			}
+
+			for(int i = 0; i < leftValues.size(); i++){
+
+				if(!deepEquals(leftValues.get(i), rightValues.get(i))){
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		return (left).equals(right);
+	}
+
+	/**
+	 * <p>
+	 * Creates a shallow copy of a PMML object.
+	 * List-valued fields are copied, so that adding or removing elements does not affect the original.
+	 * </p>
+	 *
+	 * @param clazz The static type of the PMML object. The copy is an instance of its runtime class.
+	 */
+	static
+	public <E extends PMMLObject> E copy(E object, Class<E> clazz){
+		Class<? extends PMMLObject> objectClazz = object.getClass();
+
+		E result;
+
+		try {
+			result = clazz.cast((objectClazz.getDeclaredConstructor()).newInstance());
+		} catch(ReflectiveOperationException roe){
+			throw new RuntimeException(roe);
+		}
+
+		List<Field> fields = getInstanceFields(objectClazz);
+		for(Field field : fields){
+			Object value = getFieldValue(field, object);
+
+			if(value instanceof List){
+				value = new ArrayList<>((List<?>)value);
+			}
+
+			setFieldValue(field, result, value);
+		}
+
+		return result;
+	}
+
+	/**
+	 * <p>
+	 * Replaces field references according to the mapping.
+	 * </p>
+	 *
+	 * @see #replaceFieldNames(PMMLObject, Class, Map, Class)
+	 */
+	static
+	public <E extends PMMLObject> E replaceFieldNames(E object, Class<E> clazz, Map<FieldName, FieldName> mapping){
+		return replaceFieldNames(object, clazz, mapping, null);
+	}
+
+	/**
+	 * <p>
+	 * Replaces field references (field refs, mining fields, targets etc.) according to the mapping.
+	 * Field definitions (data fields, derived fields, output fields etc.) keep their names,
+	 * except for the field definitions of the specified class.
+	 * Define functions are left as-is, because their expressions can only reference their parameter fields.
+	 * </p>
+	 *
+	 * <p>
+	 * The PMML object is not modified.
+	 * The path from the PMML object to every replaced field name is copied, and all other descendants are shared with the original.
+	 * </p>
+	 *
+	 * @param definitionClazz The class of field definitions that are renamed as well, or <code>null</code>.
+	 *
+	 * @return The PMML object if no field name was replaced, or its updated copy.
+	 */
+	static
+	public <E extends PMMLObject> E replaceFieldNames(E object, Class<E> clazz, Map<FieldName, FieldName> mapping, Class<? extends org.dmg.pmml.Field<?>> definitionClazz){
+		E result = object;
+
+		if(object instanceof DefineFunction){
+			return result;
+		}
+
+		boolean definition = (object instanceof org.dmg.pmml.Field) && (definitionClazz == null || !definitionClazz.isInstance(object));
+
+		List<Field> fields = getInstanceFields(object.getClass());
+		for(Field field : fields){
+
+			if(definition && ("name").equals(field.getName())){
+				continue;
+			}
+
+			Object value = getFieldValue(field, object);
+
+			Object replacedValue = replaceValue(value, mapping, definitionClazz);
+			if(replacedValue != value){
+
+				if(result == object){
+					result = copy(object, clazz);
+				}
+
+				setFieldValue(field, result, replacedValue);
+			}
+		}
+
+		return result;
+	}
+
+	static
+	private Object replaceValue(Object value, Map<FieldName, FieldName> mapping, Class<? extends org.dmg.pmml.Field<?>> definitionClazz){
+
+		if(value instanceof FieldName){
+			FieldName name = mapping.get(value);
+
+			return (name != null ? name : value);
+		} else
+
+		if(value instanceof PMMLObject){
+			return replaceFieldNames((PMMLObject)value, PMMLObject.class, mapping, definitionClazz);
+		} else
+
+		if(value instanceof List){
+			List<?> values = (List<?>)value;
+
+			List<Object> result = null;
+
+			for(int i = 0; i < values.size(); i++){
+				Object element = values.get(i);
+
+				Object replacedElement = replaceValue(element, mapping, definitionClazz);
+				if(replacedElement != element){
+
+					if(result == null){
+						result = new ArrayList<>(values);
+					}
+
+					result.set(i, replacedElement);
+				}
+			}
+
+			return (result != null ? result : value);
+		}
+
+		return value;
+	}
+
+	/**
+	 * <p>
+	 * Collects all field names (with multiplicities).
+	 * Within an expression, every field name is a field reference.
+	 * </p>
+	 */
+	static
+	public void collectFieldNames(Object value, Multiset<FieldName> names){
+
+		if(value instanceof FieldName){
+			names.add((FieldName)value);
+		} else
+
+		if(value instanceof PMMLObject){
+			List<Field> fields = getInstanceFields(value.getClass());
+
+			for(Field field : fields){
+				collectFieldNames(getFieldValue(field, value), names);
+			}
+		} else
+
+		if(value instanceof List){
+			List<?> values = (List<?>)value;
+
+			for(Object element : values){
+				collectFieldNames(element, names);
+			}
+		}
+	}
+
+	private static final ClassValue<List<Field>> INSTANCE_FIELDS = new ClassValue<List<Field>>(){
+
+		@Override
+		protected List<Field> computeValue(Class<?> clazz){
+			List<Field> result = new ArrayList<>();
+
+			for(Class<?> current = clazz; current != null && !(PMMLObject.class).equals(current); current = current.getSuperclass()){
+				Field[] fields = current.getDeclaredFields();
+
+				for(Field field : fields){
+					int modifiers = field.getModifiers();
+
+					if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)){
+						continue;
+					}
+
+					field.setAccessible(true);
+
+					result.add(field);
+				}
+			}
+
+			return Collections.unmodifiableList(result);
+		}
+	};
+}
@@ -18,9 +18,11 @@
  */
 package org.jpmml.converter;
 
+import java.nio.DoubleBuffer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
@@ -33,7 +35,10 @@ import org.dmg.pmml.DataField;
 import org.dmg.pmml.DataType;
 import org.dmg.pmml.Expression;
 import org.dmg.pmml.Header;
+import org.dmg.pmml.IntSparseArray;
 import org.dmg.pmml.Interval;
+import org.dmg.pmml.MathContext;
+import org.dmg.pmml.PMMLObject;
 import org.dmg.pmml.RealSparseArray;
 import org.dmg.pmml.Timestamp;
 import org.dmg.pmml.Value;
@@ -140,6 +145,16 @@ public class PMMLUtil {
 		return createConstant(value, ValueUtil.getDataType(value));
 	}
 
+	/**
+	 * <p>
+	 * Creates a <code>float</code> constant in <code>float</code> math context, and a <code>double</code> constant otherwise.
+	 * </p>
+	 */
+	static
+	public Constant createConstant(MathContext mathContext, double value){
+		return createConstant(ValueUtil.asNumber(mathContext, value));
+	}
+
 	static
 	public Constant createConstant(Object value, DataType dataType){
 		Constant constant = new Constant(ValueUtil.formatValue(value))
@@ -162,6 +177,13 @@ public class PMMLUtil {
 		return array;
 	}
 
+	static
+	public Array createIntArray(int[] values){
+		Array array = new Array(Array.Type.INT, ValueUtil.formatArray(values));
+
+		return array;
+	}
+
 	static
 	public Array createRealArray(List<? extends Number> values){
 		Array array = new Array(Array.Type.REAL, ValueUtil.formatArray(values));
@@ -169,6 +191,37 @@ public class PMMLUtil {
 		return array;
 	}
 
+	static
+	public Array createRealArray(float[] values){
+		Array array = new Array(Array.Type.REAL, ValueUtil.formatArray(values));
+
+		return array;
+	}
+
+	static
+	public Array createRealArray(double[] values){
+		Array array = new Array(Array.Type.REAL, ValueUtil.formatArray(values));
+
+		return array;
+	}
+
+	static
+	public Array createRealArray(DoubleList values){
+		return createRealArray(values.toDoubleBuffer());
+	}
+
+	static
+	public Array createRealArray(MathContext mathContext, DoubleList values){
+		return createRealArray(ValueUtil.asDoubles(mathContext, values));
+	}
+
+	static
+	public Array createRealArray(DoubleBuffer values){
+		Array array = new Array(Array.Type.REAL, ValueUtil.formatArray(values));
+
+		return array;
+	}
+
 	static
 	public RealSparseArray createRealSparseArray(List<? extends Number> values, Double defaultValue){
 		RealSparseArray sparseArray = new RealSparseArray()
@@ -190,5 +243,226 @@ public class PMMLUtil {
 		return sparseArray;
 	}
 
+	static
+	public RealSparseArray createRealSparseArray(float[] values, Double defaultValue){
+		RealSparseArray sparseArray = new RealSparseArray()
+			.setN(values.length)
+			.setDefaultValue(defaultValue);
+
+		double defaultDoubleValue = defaultValue.doubleValue();
+
+		for(int i = 0; i < values.length; i++){
+			double value = ValueUtil.floatToDouble(values[i]);
+
+			if(!ValueUtil.equals(value, defaultDoubleValue)){
+				sparseArray.addIndices(i + 1);
+				sparseArray.addEntries(value);
+			}
+		}
+
+		return sparseArray;
+	}
+
+	static
+	public RealSparseArray createRealSparseArray(double[] values, Double defaultValue){
+		return createRealSparseArray(DoubleBuffer.wrap(values), defaultValue);
+	}
+
+	static
+	public RealSparseArray createRealSparseArray(DoubleList values, Double defaultValue){
+		return createRealSparseArray(values.toDoubleBuffer(), defaultValue);
+	}
+
+	/**
+	 * <p>
+	 * Creates a sparse array of the remaining elements of the buffer.
+	 * The position of the buffer is not changed.
+	 * </p>
+	 */
+	static
+	public RealSparseArray createRealSparseArray(DoubleBuffer values, Double defaultValue){
+		int position = values.position();
+		int limit = values.limit();
+
+		RealSparseArray sparseArray = new RealSparseArray()
+			.setN(limit - position)
+			.setDefaultValue(defaultValue);
+
+		double defaultDoubleValue = defaultValue.doubleValue();
+
+		for(int i = position; i < limit; i++){
+			double value = values.get(i);
+
+			if(!ValueUtil.equals(value, defaultDoubleValue)){
+				sparseArray.addIndices((i - position) + 1);
+				sparseArray.addEntries(value);
+			}
+		}
+
+		return sparseArray;
+	}
+
+	static
+	public PMMLObject createRealVector(DoubleList values, double defaultValue){
+		return createRealVector(values.toDoubleBuffer(), defaultValue);
+	}
+
+	static
+	public PMMLObject createRealVector(MathContext mathContext, DoubleList values, double defaultValue){
+		return createRealVector(ValueUtil.asDoubles(mathContext, values), ValueUtil.asDouble(mathContext, defaultValue));
+	}
+
+	/**
+	 * <p>
+	 * Encodes the remaining elements of the buffer either as a dense {@link Array} or as a {@link RealSparseArray}, whichever is expected to be smaller when serialized.
+	 * The elements are scanned and formatted once.
+	 * </p>
+	 *
+	 * @return Either {@link Array} or {@link RealSparseArray}.
+	 */
+	static
+	public PMMLObject createRealVector(DoubleBuffer values, double defaultValue){
+		int position = values.position();
+		int limit = values.limit();
+
+		int n = limit - position;
+
+		StringBuilder sb = new StringBuilder(n * 8);
+
+		char[] buffer = new char[NumberFormatter.MAX_CHARS];
+
+		int[] indices = new int[16];
+		double[] entries = new double[16];
+
+		int count = 0;
+
+		long sparseSize = PMMLUtil.REAL_SPARSE_ARRAY_OVERHEAD + stringSize(n) + NumberFormatter.format(defaultValue, buffer, 0);
+
+		for(int i = 0; i < n; i++){
+			double value = values.get(position + i);
+
+			if(i > 0){
+				sb.append(' ');
+			}
+
+			int length = NumberFormatter.format(value, buffer, 0);
+
+			sb.append(buffer, 0, length);
+
+			if(!ValueUtil.equals(value, defaultValue)){
+
+				if(count == indices.length){
+					indices = Arrays.copyOf(indices, 2 * count);
+					entries = Arrays.copyOf(entries, 2 * count);
+				}
+
+				indices[count] = (i + 1);
+				entries[count] = value;
+
+				count++;
+
+				sparseSize += (stringSize(i + 1) + 1) + (length + 1);
+			}
+		}
+
+		long denseSize = PMMLUtil.REAL_ARRAY_OVERHEAD + sb.length();
+
+		if(sparseSize < denseSize){
+			RealSparseArray sparseArray = new RealSparseArray()
+				.setN(n)
+				.setDefaultValue(defaultValue);
+
+			for(int i = 0; i < count; i++){
+				sparseArray.addIndices(indices[i]);
+				sparseArray.addEntries(entries[i]);
+			}
+
+			return sparseArray;
+		}
+
+		return new Array(Array.Type.REAL, sb.toString());
+	}
+
+	static
+	public PMMLObject createIntVector(IntList values, int defaultValue){
+		return createIntVector(values.toIntArray(), defaultValue);
+	}
+
+	/**
+	 * <p>
+	 * Encodes the values either as a dense {@link Array} or as an {@link IntSparseArray}, whichever is expected to be smaller when serialized.
+	 * The values are scanned once, and the expected sizes are computed from digit counts (without formatting).
+	 * </p>
+	 *
+	 * @return Either {@link Array} or {@link IntSparseArray}.
+	 */
+	static
+	public PMMLObject createIntVector(int[] values, int defaultValue){
+		int n = values.length;
+
+		long denseSize = PMMLUtil.INT_ARRAY_OVERHEAD;
+		long sparseSize = PMMLUtil.INT_SPARSE_ARRAY_OVERHEAD + stringSize(n) + stringSize(defaultValue);
+
+		int count = 0;
+
+		for(int i = 0; i < n; i++){
+			int value = values[i];
+
+			int length = stringSize(value);
+
+			denseSize += (i > 0 ? 1 : 0) + length;
+
+			if(value != defaultValue){
+				count++;
+
+				sparseSize += (stringSize(i + 1) + 1) + (length + 1);
+			}
+		}
+
+		if(sparseSize < denseSize){
+			IntSparseArray sparseArray = new IntSparseArray()
+				.setN(n)
+				.setDefaultValue(defaultValue);
+
+			for(int i = 0; i < n; i++){
+				int value = values[i];
+
+				if(value != defaultValue){
+					sparseArray.addIndices(i + 1);
+					sparseArray.addEntries(value);
+				}
+			}
+
+			return sparseArray;
+		}
+
+		return new Array(Array.Type.INT, ValueUtil.formatArray(values));
+	}
+
+	/**
+	 * <p>
+	 * Computes the length of the decimal string representation of an integer value.
+	 * </p>
+	 */
+	static
+	private int stringSize(int value){
+		int result = (value < 0 ? 2 : 1);
+
+		long x = Math.abs((long)value);
+
+		while(x >= 10){
+			x /= 10;
+
+			result++;
+		}
+
+		return result;
+	}
+
+	private static final int REAL_ARRAY_OVERHEAD = ("<Array type=\"real\"></Array>").length();
+	private static final int INT_ARRAY_OVERHEAD = ("<Array type=\"int\"></Array>").length();
+	private static final int REAL_SPARSE_ARRAY_OVERHEAD = ("<REAL-SparseArray n=\"\" defaultValue=\"\"><Indices></Indices><REAL-Entries></REAL-Entries></REAL-SparseArray>").length();
+	private static final int INT_SPARSE_ARRAY_OVERHEAD = ("<INT-SparseArray n=\"\" defaultValue=\"\"><Indices></Indices><INT-Entries></INT-Entries></INT-SparseArray>").length();
+
 	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
 }
\ No newline at end of file
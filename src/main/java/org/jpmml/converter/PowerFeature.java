@@ -19,9 +19,7 @@
 package org.jpmml.converter;
 
 import com.google.common.base.Objects.ToStringHelper;
-import org.dmg.pmml.Apply;
 import org.dmg.pmml.DataType;
-import org.dmg.pmml.DerivedField;
 import org.dmg.pmml.Field;
 import org.dmg.pmml.FieldName;
 import org.dmg.pmml.OpType;
@@ -47,28 +45,27 @@ public class PowerFeature extends Feature implements HasDerivedName {
 
 	@Override
 	public FieldName getDerivedName(){
-		return FieldName.create((getName()).getValue() + "^" + getPower());
+		return FeatureUtil.createName(getEncoder(), (getName()).getValue() + "^" + getPower());
 	}
 
 	@Override
 	public ContinuousFeature toContinuousFeature(){
 		PMMLEncoder encoder = ensureEncoder();
 
-		FieldName derivedName = getDerivedName();
+		return encoder.getContinuousFeature(this, null, () -> encodeContinuousFeature(encoder));
+	}
 
-		DerivedField derivedField = encoder.getDerivedField(derivedName);
-		if(derivedField == null){
-			Apply apply = PMMLUtil.createApply("pow", ref(), PMMLUtil.createConstant(getPower()));
+	private ContinuousFeature encodeContinuousFeature(PMMLEncoder encoder){
+		FieldName derivedName = getDerivedName();
 
-			derivedField = encoder.createDerivedField(derivedName, OpType.CONTINUOUS, DataType.DOUBLE, apply);
-		}
+		encoder.declareDerivedField(derivedName, OpType.CONTINUOUS, DataType.DOUBLE, () -> PMMLUtil.createApply("pow", ref(), PMMLUtil.createConstant(getPower())));
 
-		return new ContinuousFeature(encoder, derivedField);
+		return new ContinuousFeature(encoder, derivedName, DataType.DOUBLE);
 	}
 
 	@Override
-	public int hashCode(){
-		return (31 * super.hashCode()) + getPower();
+	protected int computeHashCode(){
+		return (31 * super.computeHashCode()) + getPower();
 	}
 
 	@Override
@@ -41,6 +41,8 @@ public class PredicateManager {
 			return createSimplePredicate(feature, SimplePredicate.Operator.EQUAL, value);
 		}
 
+		FeatureUtil.addReference(feature);
+
 		Predicate predicate = new InternableSimpleSetPredicate()
 			.setField(feature.getName())
 			.setBooleanOperator(SimpleSetPredicate.BooleanOperator.IS_IN)
@@ -50,6 +52,8 @@ public class PredicateManager {
 	}
 
 	public Predicate createSimplePredicate(Feature feature, SimplePredicate.Operator operator, String value){
+		FeatureUtil.addReference(feature);
+
 		Predicate predicate = new InternableSimplePredicate()
 			.setField(feature.getName())
 			.setOperator(operator)
@@ -19,9 +19,20 @@
 package org.jpmml.converter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import org.dmg.pmml.FieldName;
 
 public class Schema {
 
@@ -29,6 +40,10 @@ public class Schema {
 
 	private List<? extends Feature> features = null;
 
+	private ListMultimap<FieldName, Integer> nameIndexes = null;
+
+	private Map<Feature, Integer> featureIndexes = null;
+
 
 	public Schema(Label label, List<? extends Feature> features){
 		setLabel(label);
@@ -39,22 +54,30 @@ public class Schema {
 		Label label = getLabel();
 		List<? extends Feature> features = getFeatures();
 
-		return new Schema(label != null ? label.toAnonymousLabel() : null, features);
+		Schema schema = new Schema(label != null ? label.toAnonymousLabel() : null, features);
+
+		// The feature list is the same, so are the indexes
+		schema.nameIndexes = this.nameIndexes;
+		schema.featureIndexes = this.featureIndexes;
+
+		return schema;
 	}
 
+	/**
+	 * <p>
+	 * Creates a schema that is a view of the selected features of this schema.
+	 * The view shares the feature list of this schema, and holds a copy of the index array.
+	 * </p>
+	 *
+	 * @throws IndexOutOfBoundsException If an index is out of range.
+	 *
+	 * @see #toMaterializedSchema()
+	 */
 	public Schema toSubSchema(int[] indexes){
 		Label label = getLabel();
 		List<? extends Feature> features = getFeatures();
 
-		List<Feature> selectedFeatures = new ArrayList<>(indexes.length);
-
-		for(int index : indexes){
-			Feature feature = features.get(index);
-
-			selectedFeatures.add(feature);
-		}
-
-		return new Schema(label, selectedFeatures);
+		return new Schema(label, new IndexedFeatureList(features, indexes));
 	}
 
 	public Schema toTransformedSchema(Function<Feature, Feature> function){
@@ -68,6 +91,69 @@ public class Schema {
 		return new Schema(label, transformedFeatures);
 	}
 
+	/**
+	 * <p>
+	 * Creates a schema that is a view of the transformed features of this schema.
+	 * The function is applied lazily, once per feature, when the feature is first accessed.
+	 * </p>
+	 *
+	 * @see #toMaterializedSchema()
+	 */
+	public Schema toLazyTransformedSchema(Function<Feature, Feature> function){
+		Label label = getLabel();
+		List<? extends Feature> features = getFeatures();
+
+		return new Schema(label, new TransformedFeatureList(features, function));
+	}
+
+	/**
+	 * <p>
+	 * Creates a schema that holds the transformed features of this schema.
+	 * </p>
+	 *
+	 * <p>
+	 * In parallel mode, the function is applied eagerly using the common fork-join pool.
+	 * The order of features is the same as in sequential mode.
+	 * Parallel mode requires that all features are bound to {@link PMMLEncoder#isThreadSafe() thread-safe encoders} (eg. {@link ConcurrentModelEncoder}),
+	 * otherwise the function is applied sequentially.
+	 * Pending transformations of this schema (if any) are applied sequentially beforehand, when checking the encoders.
+	 * </p>
+	 */
+	public Schema toTransformedSchema(Function<Feature, Feature> function, boolean parallel){
+
+		if(!parallel){
+			return toTransformedSchema(function);
+		}
+
+		Label label = getLabel();
+		List<? extends Feature> features = getFeatures();
+
+		IntStream indexStream = IntStream.range(0, features.size());
+
+		if(isThreadSafe(features)){
+			indexStream = indexStream.parallel();
+		}
+
+		Feature[] transformedFeatures = indexStream
+			.mapToObj(index -> function.apply(features.get(index)))
+			.toArray(Feature[]::new);
+
+		return new Schema(label, Arrays.asList(transformedFeatures));
+	}
+
+	/**
+	 * <p>
+	 * Creates a schema that holds a copy of the feature list of this schema.
+	 * All pending transformations are applied.
+	 * </p>
+	 */
+	public Schema toMaterializedSchema(){
+		Label label = getLabel();
+		List<? extends Feature> features = getFeatures();
+
+		return new Schema(label, new ArrayList<>(features));
+	}
+
 	public Label getLabel(){
 		return this.label;
 	}
@@ -82,10 +168,102 @@ public class Schema {
 		return features.get(index);
 	}
 
+	/**
+	 * <p>
+	 * Gets the positions of features that are named after the specified field.
+	 * </p>
+	 *
+	 * <p>
+	 * The index is built on first use, and is specific to this schema.
+	 * Schemas that are derived from this schema (eg. via {@link #toSubSchema(int[])}, {@link #toLazyTransformedSchema(Function)}) build their own index.
+	 * </p>
+	 *
+	 * @return A list of feature positions in ascending order, or an empty list.
+	 */
+	public List<Integer> indexesOf(FieldName name){
+		ListMultimap<FieldName, Integer> nameIndexes = this.nameIndexes;
+
+		if(nameIndexes == null){
+			List<? extends Feature> features = getFeatures();
+
+			ImmutableListMultimap.Builder<FieldName, Integer> builder = ImmutableListMultimap.builder();
+
+			for(int i = 0; i < features.size(); i++){
+				Feature feature = features.get(i);
+
+				builder.put(feature.getName(), i);
+			}
+
+			nameIndexes = builder.build();
+
+			this.nameIndexes = nameIndexes;
+		}
+
+		return nameIndexes.get(name);
+	}
+
+	/**
+	 * <p>
+	 * Gets the position of the first occurrence of the specified feature.
+	 * </p>
+	 *
+	 * @return A feature position, or <code>-1</code>.
+	 *
+	 * @see #indexesOf(FieldName)
+	 */
+	public int indexOf(Feature feature){
+		Map<Feature, Integer> featureIndexes = this.featureIndexes;
+
+		if(featureIndexes == null){
+			List<? extends Feature> features = getFeatures();
+
+			featureIndexes = new HashMap<>(2 * features.size());
+
+			for(int i = 0; i < features.size(); i++){
+				featureIndexes.putIfAbsent(features.get(i), i);
+			}
+
+			featureIndexes = Collections.unmodifiableMap(featureIndexes);
+
+			this.featureIndexes = featureIndexes;
+		}
+
+		Integer index = featureIndexes.get(feature);
+
+		return (index != null ? index : -1);
+	}
+
+	public List<Feature> getFeatures(FieldName name){
+		List<Integer> indexes = indexesOf(name);
+
+		List<Feature> result = new ArrayList<>(indexes.size());
+
+		for(Integer index : indexes){
+			result.add(getFeature(index));
+		}
+
+		return result;
+	}
+
 	public List<? extends Feature> getFeatures(){
 		return this.features;
 	}
 
+	static
+	private boolean isThreadSafe(List<? extends Feature> features){
+		Set<PMMLEncoder> encoders = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		for(Feature feature : features){
+			PMMLEncoder encoder = feature.getEncoder();
+
+			if(encoder != null && encoders.add(encoder) && !encoder.isThreadSafe()){
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	private void setFeatures(List<? extends Feature> features){
 
 		if(features == null){
@@ -0,0 +1,570 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlSchema;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.google.common.collect.Iterators;
+import org.dmg.pmml.DataDictionary;
+import org.dmg.pmml.Header;
+import org.dmg.pmml.Model;
+import org.dmg.pmml.PMML;
+import org.dmg.pmml.TransformationDictionary;
+import org.dmg.pmml.mining.MiningModel;
+import org.dmg.pmml.mining.Segment;
+import org.dmg.pmml.mining.Segmentation;
+import org.jpmml.model.JAXBUtil;
+
+/**
+ * <p>
+ * Writes a PMML class model object one top-level element (and one {@link Segment} element) at a time.
+ * </p>
+ *
+ * <p>
+ * The PMML class model object is consumed in the process.
+ * Every element is detached from it as soon as it has been written, so the elements that have been written can be garbage collected while the rest are being marshalled.
+ * </p>
+ *
+ * <p>
+ * The {@link Segment} elements of the last {@link MiningModel} element may be supplied lazily, using an iterator.
+ * Then, at most one of them needs to be held in memory at a time.
+ * </p>
+ *
+ * <p>
+ * All elements are written into the PMML namespace, which is declared once (as the default namespace) on the root element.
+ * </p>
+ */
+public class StAXUtil {
+
+	private StAXUtil(){
+	}
+
+	static
+	public XMLStreamWriter createXMLStreamWriter(OutputStream os) throws XMLStreamException {
+		XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+		return outputFactory.createXMLStreamWriter(os, "UTF-8");
+	}
+
+	static
+	public void writePMML(PMML pmml, OutputStream os) throws JAXBException, XMLStreamException {
+		writePMML(pmml, null, os);
+	}
+
+	/**
+	 * @see #writePMML(PMML, Iterator, XMLStreamWriter)
+	 */
+	static
+	public void writePMML(PMML pmml, Iterator<? extends Segment> segments, OutputStream os) throws JAXBException, XMLStreamException {
+		XMLStreamWriter writer = createXMLStreamWriter(os);
+
+		try {
+			writer.writeStartDocument("UTF-8", "1.0");
+
+			writePMML(pmml, segments, writer);
+
+			writer.writeEndDocument();
+			writer.flush();
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * @param pmml A PMML class model object. It is consumed in the process, and must not be used afterwards.
+	 */
+	static
+	public void writePMML(PMML pmml, XMLStreamWriter writer) throws JAXBException, XMLStreamException {
+		writePMML(pmml, null, writer);
+	}
+
+	/**
+	 * @param pmml A PMML class model object. It is consumed in the process, and must not be used afterwards.
+	 * @param segments The {@link Segment} elements of the last model, or <code>null</code>.
+	 * If not <code>null</code>, then the last model must be a {@link MiningModel} element whose {@link Segmentation} element is empty.
+	 */
+	static
+	public void writePMML(PMML pmml, Iterator<? extends Segment> segments, XMLStreamWriter writer) throws JAXBException, XMLStreamException {
+		Marshaller marshaller = createMarshaller();
+
+		writer.setDefaultNamespace(StAXUtil.NAMESPACE_URI);
+
+		writer.writeStartElement(StAXUtil.NAMESPACE_URI, "PMML");
+		writer.writeDefaultNamespace(StAXUtil.NAMESPACE_URI);
+		writer.writeAttribute("version", pmml.getVersion());
+
+		// The PMML namespace is in scope already
+		FragmentWriter fragmentWriter = new FragmentWriter(writer, false);
+
+		Header header = pmml.getHeader();
+		if(header != null){
+			pmml.setHeader(null);
+
+			marshaller.marshal(header, fragmentWriter);
+		}
+
+		DataDictionary dataDictionary = pmml.getDataDictionary();
+		if(dataDictionary != null){
+			pmml.setDataDictionary(null);
+
+			marshaller.marshal(dataDictionary, fragmentWriter);
+		}
+
+		TransformationDictionary transformationDictionary = pmml.getTransformationDictionary();
+		if(transformationDictionary != null){
+			pmml.setTransformationDictionary(null);
+
+			marshaller.marshal(transformationDictionary, fragmentWriter);
+		} // End if
+
+		if(pmml.hasModels()){
+			List<Model> models = pmml.getModels();
+
+			for(int i = 0; i < models.size(); i++){
+				Model model = models.get(i);
+
+				models.set(i, null);
+
+				writeModelElement(model, (i == (models.size() - 1) ? segments : null), fragmentWriter);
+			}
+
+			models.clear();
+		} else
+
+		{
+			if(segments != null){
+				throw new IllegalArgumentException();
+			}
+		}
+
+		writer.writeEndElement();
+	}
+
+	/**
+	 * <p>
+	 * Writes a {@link MiningModel} element one {@link Segment} element at a time.
+	 * Other model elements are written in one go.
+	 * </p>
+	 *
+	 * <p>
+	 * The model element declares the PMML namespace, so that it is self-contained.
+	 * </p>
+	 *
+	 * @param model A model. In case of a {@link MiningModel}, its {@link Segmentation} element is emptied in the process, and the model must not be used afterwards.
+	 */
+	static
+	public void writeModel(Model model, XMLStreamWriter writer) throws JAXBException, XMLStreamException {
+		writeModelElement(model, null, new FragmentWriter(writer, true));
+	}
+
+	/**
+	 * @param segments The {@link Segment} elements of the {@link MiningModel} element. Each one is written as soon as it has been obtained from the iterator.
+	 *
+	 * @see #writeModel(Model, XMLStreamWriter)
+	 */
+	static
+	public void writeModel(MiningModel miningModel, Iterator<? extends Segment> segments, XMLStreamWriter writer) throws JAXBException, XMLStreamException {
+		writeModelElement(miningModel, segments, new FragmentWriter(writer, true));
+	}
+
+	static
+	private void writeModelElement(Model model, Iterator<? extends Segment> segments, FragmentWriter writer) throws JAXBException, XMLStreamException {
+		Marshaller marshaller = createMarshaller();
+
+		if(model instanceof MiningModel){
+			MiningModel miningModel = (MiningModel)model;
+
+			Segmentation segmentation = miningModel.getSegmentation();
+
+			if(segments != null){
+
+				if(segmentation == null || segmentation.hasSegments()){
+					throw new IllegalArgumentException();
+				}
+			} else
+
+			if(segmentation != null && segmentation.hasSegments()){
+				Deque<Segment> detachedSegments = new ArrayDeque<>(segmentation.getSegments());
+
+				(segmentation.getSegments()).clear();
+
+				segments = Iterators.consumingIterator(detachedSegments.iterator());
+			} // End if
+
+			if(segments != null){
+				// The Segmentation element is marshalled without content, and the Segment elements are injected just before its end tag
+				writer.setSegments(segments, createMarshaller());
+
+				try {
+					marshaller.marshal(miningModel, writer);
+				} finally {
+					writer.setSegments(null, null);
+				}
+
+				return;
+			}
+		} else
+
+		{
+			if(segments != null){
+				throw new IllegalArgumentException();
+			}
+		}
+
+		marshaller.marshal(model, writer);
+	}
+
+	static
+	private Marshaller createMarshaller() throws JAXBException {
+		Marshaller marshaller = JAXBUtil.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+
+		return marshaller;
+	}
+
+	/**
+	 * <p>
+	 * A writer that writes PMML elements without a namespace prefix, relying on the default namespace declaration instead.
+	 * JAXB marshals every fragment as if it were a standalone document, with a generated namespace prefix (eg. "ns2") and a namespace declaration of its own.
+	 * </p>
+	 */
+	static
+	private class FragmentWriter implements XMLStreamWriter {
+
+		private XMLStreamWriter writer = null;
+
+		private boolean declareNamespace = false;
+
+		private Iterator<? extends Segment> segments = null;
+
+		private Marshaller marshaller = null;
+
+		private int depth = 0;
+
+		private int segmentationDepth = -1;
+
+
+		private FragmentWriter(XMLStreamWriter writer, boolean declareNamespace){
+			this.writer = writer;
+			this.declareNamespace = declareNamespace;
+		}
+
+		private void setSegments(Iterator<? extends Segment> segments, Marshaller marshaller){
+			this.segments = segments;
+			this.marshaller = marshaller;
+		}
+
+		@Override
+		public void writeStartElement(String localName) throws XMLStreamException {
+			startElement(localName);
+
+			this.writer.writeStartElement(localName);
+		}
+
+		@Override
+		public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+
+			if((StAXUtil.NAMESPACE_URI).equals(namespaceURI)){
+				writeStartElement(localName);
+
+				declareNamespace();
+
+				return;
+			}
+
+			startElement(localName);
+
+			this.writer.writeStartElement(namespaceURI, localName);
+		}
+
+		@Override
+		public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+
+			if((StAXUtil.NAMESPACE_URI).equals(namespaceURI)){
+				writeStartElement(localName);
+
+				declareNamespace();
+
+				return;
+			}
+
+			startElement(localName);
+
+			this.writer.writeStartElement(prefix, localName, namespaceURI);
+		}
+
+		@Override
+		public void writeEmptyElement(String localName) throws XMLStreamException {
+			this.writer.writeEmptyElement(localName);
+		}
+
+		@Override
+		public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+
+			if((StAXUtil.NAMESPACE_URI).equals(namespaceURI)){
+				this.writer.writeEmptyElement(localName);
+
+				return;
+			}
+
+			this.writer.writeEmptyElement(namespaceURI, localName);
+		}
+
+		@Override
+		public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+
+			if((StAXUtil.NAMESPACE_URI).equals(namespaceURI)){
+				this.writer.writeEmptyElement(localName);
+
+				return;
+			}
+
+			this.writer.writeEmptyElement(prefix, localName, namespaceURI);
+		}
+
+		@Override
+		public void writeEndElement() throws XMLStreamException {
+
+			if(this.depth == this.segmentationDepth){
+				writeSegments();
+
+				this.segmentationDepth = -1;
+			}
+
+			this.depth--;
+
+			this.writer.writeEndElement();
+		}
+
+		@Override
+		public void writeEndDocument() throws XMLStreamException {
+			this.writer.writeEndDocument();
+		}
+
+		@Override
+		public void close() throws XMLStreamException {
+			this.writer.close();
+		}
+
+		@Override
+		public void flush() throws XMLStreamException {
+			this.writer.flush();
+		}
+
+		@Override
+		public void writeAttribute(String localName, String value) throws XMLStreamException {
+			this.writer.writeAttribute(localName, value);
+		}
+
+		@Override
+		public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+			this.writer.writeAttribute(prefix, namespaceURI, localName, value);
+		}
+
+		@Override
+		public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+			this.writer.writeAttribute(namespaceURI, localName, value);
+		}
+
+		@Override
+		public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+
+			if((StAXUtil.NAMESPACE_URI).equals(namespaceURI)){
+				return;
+			}
+
+			this.writer.writeNamespace(prefix, namespaceURI);
+		}
+
+		@Override
+		public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+
+			if((StAXUtil.NAMESPACE_URI).equals(namespaceURI)){
+				return;
+			}
+
+			this.writer.writeDefaultNamespace(namespaceURI);
+		}
+
+		@Override
+		public void writeComment(String data) throws XMLStreamException {
+			this.writer.writeComment(data);
+		}
+
+		@Override
+		public void writeProcessingInstruction(String target) throws XMLStreamException {
+			this.writer.writeProcessingInstruction(target);
+		}
+
+		@Override
+		public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+			this.writer.writeProcessingInstruction(target, data);
+		}
+
+		@Override
+		public void writeCData(String data) throws XMLStreamException {
+			this.writer.writeCData(data);
+		}
+
+		@Override
+		public void writeDTD(String dtd) throws XMLStreamException {
+			this.writer.writeDTD(dtd);
+		}
+
+		@Override
+		public void writeEntityRef(String name) throws XMLStreamException {
+			this.writer.writeEntityRef(name);
+		}
+
+		@Override
+		public void writeStartDocument() throws XMLStreamException {
+			this.writer.writeStartDocument();
+		}
+
+		@Override
+		public void writeStartDocument(String version) throws XMLStreamException {
+			this.writer.writeStartDocument(version);
+		}
+
+		@Override
+		public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+			this.writer.writeStartDocument(encoding, version);
+		}
+
+		@Override
+		public void writeCharacters(String text) throws XMLStreamException {
+			this.writer.writeCharacters(text);
+		}
+
+		@Override
+		public void writeCharacters(char[] text, int start, int length) throws XMLStreamException {
+			this.writer.writeCharacters(text, start, length);
+		}
+
+		@Override
+		public String getPrefix(String uri) throws XMLStreamException {
+			return this.writer.getPrefix(uri);
+		}
+
+		@Override
+		public void setPrefix(String prefix, String uri) throws XMLStreamException {
+
+			if((StAXUtil.NAMESPACE_URI).equals(uri)){
+				return;
+			}
+
+			this.writer.setPrefix(prefix, uri);
+		}
+
+		@Override
+		public void setDefaultNamespace(String uri) throws XMLStreamException {
+			this.writer.setDefaultNamespace(uri);
+		}
+
+		@Override
+		public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+			this.writer.setNamespaceContext(context);
+		}
+
+		@Override
+		public NamespaceContext getNamespaceContext(){
+			return this.writer.getNamespaceContext();
+		}
+
+		@Override
+		public Object getProperty(String name){
+			return this.writer.getProperty(name);
+		}
+
+		private void declareNamespace() throws XMLStreamException {
+
+			// The root element of a standalone fragment
+			if(this.declareNamespace && this.depth == 1){
+				this.writer.writeDefaultNamespace(StAXUtil.NAMESPACE_URI);
+			}
+		}
+
+		private void startElement(String localName){
+			this.depth++;
+
+			// The Segmentation element is a direct child of the MiningModel element
+			if(this.depth == 2 && ("Segmentation").equals(localName)){
+				this.segmentationDepth = this.depth;
+			}
+		}
+
+		private void writeSegments() throws XMLStreamException {
+			Iterator<? extends Segment> segments = this.segments;
+
+			if(segments == null){
+				return;
+			}
+
+			while(segments.hasNext()){
+				Segment segment = segments.next();
+
+				try {
+					this.marshaller.marshal(segment, this);
+				} catch(JAXBException je){
+					throw new XMLStreamException(je);
+				}
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Gets the XML namespace URI of the PMML schema version that the PMML class model is bound to.
+	 * </p>
+	 */
+	static
+	public String getNamespaceURI(){
+		XmlRootElement rootElement = PMML.class.getAnnotation(XmlRootElement.class);
+
+		if(rootElement != null && !(StAXUtil.DEFAULT_NAMESPACE).equals(rootElement.namespace())){
+			return rootElement.namespace();
+		}
+
+		Package _package = PMML.class.getPackage();
+
+		XmlSchema schema = (_package != null ? _package.getAnnotation(XmlSchema.class) : null);
+		if(schema == null){
+			throw new IllegalStateException();
+		}
+
+		return schema.namespace();
+	}
+
+	private static final String DEFAULT_NAMESPACE = "##default";
+
+	private static final String NAMESPACE_URI = getNamespaceURI();
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * A read-only view that applies a function to the features of a parent list.
+ * </p>
+ *
+ * <p>
+ * The function is applied on first access, and the result is memoized.
+ * </p>
+ *
+ * @see Schema#toLazyTransformedSchema(Function)
+ */
+class TransformedFeatureList extends AbstractList<Feature> implements RandomAccess {
+
+	private List<? extends Feature> parent = null;
+
+	private Function<Feature, Feature> function = null;
+
+	private Feature[] transformedFeatures = null;
+
+
+	TransformedFeatureList(List<? extends Feature> parent, Function<Feature, Feature> function){
+
+		if(parent == null || function == null){
+			throw new IllegalArgumentException();
+		}
+
+		this.parent = parent;
+		this.function = function;
+	}
+
+	@Override
+	public int size(){
+		return this.parent.size();
+	}
+
+	@Override
+	public Feature get(int index){
+
+		if(this.transformedFeatures == null){
+			this.transformedFeatures = new Feature[this.parent.size()];
+		}
+
+		Feature transformedFeature = this.transformedFeatures[index];
+
+		if(transformedFeature == null){
+			transformedFeature = this.function.apply(this.parent.get(index));
+
+			this.transformedFeatures[index] = transformedFeature;
+		}
+
+		return transformedFeature;
+	}
+}
@@ -18,15 +18,15 @@
  */
 package org.jpmml.converter;
 
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Lists;
 import com.google.common.math.DoubleMath;
 import com.google.common.primitives.Ints;
 import org.dmg.pmml.DataType;
+import org.dmg.pmml.MathContext;
 
 public class ValueUtil {
 
@@ -45,8 +45,24 @@ public class ValueUtil {
 		return object.toString();
 	}
 
+	/**
+	 * <p>
+	 * Formats <code>float</code> and <code>double</code> values using the shortest decimal representation that parses back to the same value.
+	 * </p>
+	 *
+	 * @see NumberFormatter
+	 */
 	static
 	public String formatValue(Number number){
+
+		if(number instanceof Double){
+			return NumberFormatter.toString(number.doubleValue());
+		} else
+
+		if(number instanceof Float){
+			return NumberFormatter.toString(number.floatValue());
+		}
+
 		return number.toString();
 	}
 
@@ -54,6 +70,8 @@ public class ValueUtil {
 	public String formatArray(List<?> values){
 		StringBuilder sb = new StringBuilder(values.size() * 16);
 
+		char[] buffer = new char[NumberFormatter.MAX_CHARS];
+
 		for(int i = 0; i < values.size(); i++){
 			Object value = values.get(i);
 
@@ -77,6 +95,18 @@ public class ValueUtil {
 				}
 			} else
 
+			if(value instanceof Double){
+				int length = NumberFormatter.format(((Double)value).doubleValue(), buffer, 0);
+
+				sb.append(buffer, 0, length);
+			} else
+
+			if(value instanceof Float){
+				int length = NumberFormatter.format(((Float)value).floatValue(), buffer, 0);
+
+				sb.append(buffer, 0, length);
+			} else
+
 			{
 				sb.append(ValueUtil.formatValue(value));
 			}
@@ -85,6 +115,81 @@ public class ValueUtil {
 		return sb.toString();
 	}
 
+	static
+	public String formatArray(int[] values){
+		StringBuilder sb = new StringBuilder(values.length * 8);
+
+		for(int i = 0; i < values.length; i++){
+
+			if(i > 0){
+				sb.append(' ');
+			}
+
+			sb.append(values[i]);
+		}
+
+		return sb.toString();
+	}
+
+	static
+	public String formatArray(float[] values){
+		StringBuilder sb = new StringBuilder(values.length * 16);
+
+		char[] buffer = new char[NumberFormatter.MAX_CHARS];
+
+		for(int i = 0; i < values.length; i++){
+
+			if(i > 0){
+				sb.append(' ');
+			}
+
+			int length = NumberFormatter.format(values[i], buffer, 0);
+
+			sb.append(buffer, 0, length);
+		}
+
+		return sb.toString();
+	}
+
+	static
+	public String formatArray(double[] values){
+		return formatArray(DoubleBuffer.wrap(values));
+	}
+
+	static
+	public String formatArray(DoubleList values){
+		return formatArray(values.toDoubleBuffer());
+	}
+
+	/**
+	 * <p>
+	 * Formats the remaining elements of the buffer.
+	 * The position of the buffer is not changed.
+	 * </p>
+	 */
+	static
+	public String formatArray(DoubleBuffer values){
+		int position = values.position();
+		int limit = values.limit();
+
+		StringBuilder sb = new StringBuilder((limit - position) * 16);
+
+		char[] buffer = new char[NumberFormatter.MAX_CHARS];
+
+		for(int i = position; i < limit; i++){
+
+			if(i > position){
+				sb.append(' ');
+			}
+
+			int length = NumberFormatter.format(values.get(i), buffer, 0);
+
+			sb.append(buffer, 0, length);
+		}
+
+		return sb.toString();
+	}
+
 	static
 	public boolean isZero(Number number){
 		return equals(number, ZERO);
@@ -117,15 +222,13 @@ public class ValueUtil {
 			return null;
 		}
 
-		Function<Object, Number> function = new Function<Object, Number>(){
+		List<Number> result = new ArrayList<>(objects.size());
 
-			@Override
-			public Number apply(Object object){
-				return asNumber(object);
-			}
-		};
+		for(Object object : objects){
+			result.add(asNumber(object));
+		}
 
-		return Lists.transform(objects, function);
+		return result;
 	}
 
 	static
@@ -150,21 +253,23 @@ public class ValueUtil {
 	}
 
 	static
-	public List<Integer> asIntegers(List<? extends Number> numbers){
+	public IntList asIntegers(List<? extends Number> numbers){
 
 		if(numbers == null){
 			return null;
+		} // End if
+
+		if(numbers instanceof IntList){
+			return (IntList)numbers;
 		}
 
-		Function<Number, Integer> function = new Function<Number, Integer>(){
+		int[] values = new int[numbers.size()];
 
-			@Override
-			public Integer apply(Number number){
-				return asInteger(number);
-			}
-		};
+		for(int i = 0; i < values.length; i++){
+			values[i] = asInt(numbers.get(i));
+		}
 
-		return Lists.transform(numbers, function);
+		return new IntList(values);
 	}
 
 	static
@@ -178,39 +283,121 @@ public class ValueUtil {
 	}
 
 	static
-	public List<Double> asDoubles(List<? extends Number> numbers){
+	public DoubleList asDoubles(List<? extends Number> numbers){
 
 		if(numbers == null){
 			return null;
+		} // End if
+
+		if(numbers instanceof DoubleList){
+			return (DoubleList)numbers;
 		}
 
-		Function<Number, Double> function = new Function<Number, Double>(){
+		double[] values = new double[numbers.size()];
 
-			@Override
-			public Double apply(Number number){
-				return asDouble(number);
-			}
-		};
+		for(int i = 0; i < values.length; i++){
+			values[i] = (numbers.get(i)).doubleValue();
+		}
 
-		return Lists.transform(numbers, function);
+		return new DoubleList(values);
 	}
 
 	static
 	public Double floatToDouble(Float value){
-		return Double.parseDouble(Float.toString(value));
+		return floatToDouble(value.floatValue());
+	}
+
+	/**
+	 * <p>
+	 * Converts a <code>float</code> value to the <code>double</code> value that has the same shortest decimal representation.
+	 * </p>
+	 *
+	 * @see NumberFormatter#toDouble(float)
+	 */
+	static
+	public double floatToDouble(float value){
+		return NumberFormatter.toDouble(value);
+	}
+
+	static
+	public DoubleList floatsToDoubles(List<Float> values){
+		double[] result = new double[values.size()];
+
+		for(int i = 0; i < result.length; i++){
+			result[i] = floatToDouble((values.get(i)).floatValue());
+		}
+
+		return new DoubleList(result);
+	}
+
+	static
+	public DoubleList floatsToDoubles(float[] values){
+		double[] result = new double[values.length];
+
+		for(int i = 0; i < result.length; i++){
+			result[i] = floatToDouble(values[i]);
+		}
+
+		return new DoubleList(result);
 	}
 
+	/**
+	 * <p>
+	 * Rounds a <code>double</code> value to the precision of the math context.
+	 * In <code>float</code> math context, the result is the <code>double</code> value that has the same shortest decimal representation as the nearest <code>float</code> value.
+	 * </p>
+	 *
+	 * @see #floatToDouble(float)
+	 */
 	static
-	public List<Double> floatsToDoubles(List<Float> values){
-		Function<Float, Double> function = new Function<Float, Double>(){
+	public double asDouble(MathContext mathContext, double value){
 
-			@Override
-			public Double apply(Float value){
-				return floatToDouble(value);
+		if((MathContext.FLOAT).equals(mathContext)){
+			return floatToDouble((float)value);
+		}
+
+		return value;
+	}
+
+	static
+	public DoubleList asDoubles(MathContext mathContext, DoubleList values){
+
+		if((MathContext.FLOAT).equals(mathContext)){
+			double[] result = new double[values.size()];
+
+			for(int i = 0; i < result.length; i++){
+				result[i] = floatToDouble((float)values.getDouble(i));
 			}
-		};
 
-		return Lists.transform(values, function);
+			return new DoubleList(result);
+		}
+
+		return values;
+	}
+
+	/**
+	 * <p>
+	 * Boxes a <code>double</code> value as {@link Float} in <code>float</code> math context, and as {@link Double} otherwise.
+	 * </p>
+	 */
+	static
+	public Number asNumber(MathContext mathContext, double value){
+
+		if((MathContext.FLOAT).equals(mathContext)){
+			return (float)value;
+		}
+
+		return value;
+	}
+
+	static
+	public DataType getDataType(MathContext mathContext){
+
+		if((MathContext.FLOAT).equals(mathContext)){
+			return DataType.FLOAT;
+		}
+
+		return DataType.DOUBLE;
 	}
 
 	static
@@ -265,6 +452,52 @@ public class ValueUtil {
 		return ((double)count / (double)values.size()) >= threshold;
 	}
 
+	static
+	public BitSet getIndices(DoubleList values, double targetValue){
+		BitSet result = new BitSet(values.size());
+
+		for(int i = 0; i < values.size(); i++){
+			double value = values.getDouble(i);
+
+			if(equals(value, targetValue)){
+				result.set(i, true);
+			}
+		}
+
+		return result;
+	}
+
+	static
+	public boolean isSparse(DoubleList values, double defaultValue, double threshold){
+
+		if(threshold < 0d || threshold > 1d){
+			throw new IllegalArgumentException();
+		}
+
+		int count = 0;
+
+		for(int i = 0; i < values.size(); i++){
+			double value = values.getDouble(i);
+
+			if(equals(value, defaultValue)){
+				count++;
+			}
+		}
+
+		return ((double)count / (double)values.size()) >= threshold;
+	}
+
+	static
+	public DoubleList filterByIndices(DoubleList list, BitSet filter){
+		double[] result = new double[(filter.get(0, list.size())).cardinality()];
+
+		for(int i = filter.nextSetBit(0), j = 0; i > -1 && i < list.size(); i = filter.nextSetBit(i + 1), j++){
+			result[j] = list.getDouble(i);
+		}
+
+		return new DoubleList(result);
+	}
+
 	static
 	public <E> List<E> filterByIndices(List<E> list, BitSet filter){
 		List<E> result = new ArrayList<>(list.size());
@@ -280,6 +513,9 @@ public class ValueUtil {
 		return result;
 	}
 
+	/**
+	 * @see #equals(double, double)
+	 */
 	static
 	public boolean equals(Number value, Number targetValue){
 
@@ -287,7 +523,22 @@ public class ValueUtil {
 			return true;
 		}
 
-		return (value.doubleValue() == targetValue.doubleValue());
+		return equals(value.doubleValue(), targetValue.doubleValue());
+	}
+
+	/**
+	 * <p>
+	 * Compares two values numerically, except that NaN is equal to NaN.
+	 * Positive and negative zero are equal.
+	 * </p>
+	 *
+	 * <p>
+	 * This is the notion of equality that sparse arrays need: a NaN element is not stored if the default value is NaN.
+	 * </p>
+	 */
+	static
+	public boolean equals(double value, double targetValue){
+		return (value == targetValue) || (Double.isNaN(value) && Double.isNaN(targetValue));
 	}
 
 	private static final Double ZERO = Double.valueOf(0d);
@@ -30,6 +30,7 @@ import org.dmg.pmml.clustering.Cluster;
 import org.dmg.pmml.clustering.ClusteringField;
 import org.jpmml.converter.ContinuousFeature;
 import org.jpmml.converter.Feature;
+import org.jpmml.converter.FeatureUtil;
 import org.jpmml.converter.ModelUtil;
 import org.jpmml.converter.ValueUtil;
 
@@ -58,6 +59,8 @@ public class ClusteringModelUtil {
 
 			ContinuousFeature continuousFeature = feature.toContinuousFeature();
 
+			FeatureUtil.addReference(continuousFeature);
+
 			ClusteringField clusteringField = new ClusteringField(continuousFeature.getName());
 
 			if(weight != null && !ValueUtil.isOne(weight)){
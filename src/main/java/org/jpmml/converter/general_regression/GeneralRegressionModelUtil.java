@@ -36,9 +36,12 @@ import org.dmg.pmml.general_regression.Predictor;
 import org.dmg.pmml.general_regression.PredictorList;
 import org.jpmml.converter.BinaryFeature;
 import org.jpmml.converter.BooleanFeature;
+import org.jpmml.converter.CategoricalFeature;
 import org.jpmml.converter.ConstantFeature;
 import org.jpmml.converter.ContinuousFeature;
 import org.jpmml.converter.Feature;
+import org.jpmml.converter.FeatureUtil;
+import org.jpmml.converter.HasBinaryFeatures;
 import org.jpmml.converter.InteractionFeature;
 import org.jpmml.converter.PowerFeature;
 import org.jpmml.converter.ValueUtil;
@@ -96,8 +99,9 @@ public class GeneralRegressionModelUtil {
 
 		Set<FieldName> factors = new LinkedHashSet<>();
 
+		HasBinaryFeatures binaryFeatures = (features instanceof HasBinaryFeatures ? (HasBinaryFeatures)features : null);
+
 		for(int i = 0; i < features.size(); i++){
-			Feature feature = features.get(i);
 			Double coefficient = coefficients.get(i);
 
 			if(coefficient == null || ValueUtil.isZeroLike(coefficient)){
@@ -110,7 +114,22 @@ public class GeneralRegressionModelUtil {
 
 			p++;
 
-			double multiplier = createPPCells(feature, parameter, ppMatrix, covariates, factors);
+			double multiplier;
+
+			CategoricalFeature categoricalFeature = (binaryFeatures != null ? binaryFeatures.getCategoricalFeature(i) : null);
+
+			if(categoricalFeature != null){
+				FeatureUtil.addReference(categoricalFeature);
+
+				multiplier = createPPCell(binaryFeatures.getValue(i), categoricalFeature.getName(), parameter, ppMatrix, factors);
+			} else
+
+			{
+				Feature feature = features.get(i);
+
+				multiplier = createPPCells(feature, parameter, ppMatrix, covariates, factors);
+			} // End if
+
 			if(multiplier != 1d){
 				coefficient = (multiplier * coefficient);
 			}
@@ -154,12 +173,16 @@ public class GeneralRegressionModelUtil {
 		if(feature instanceof BinaryFeature){
 			BinaryFeature binaryFeature = (BinaryFeature)feature;
 
+			FeatureUtil.addReference(binaryFeature);
+
 			return createPPCell(binaryFeature.getValue(), binaryFeature.getName(), parameter, ppMatrix, factors);
 		} else
 
 		if(feature instanceof BooleanFeature){
 			BooleanFeature booleanFeature = (BooleanFeature)feature;
 
+			FeatureUtil.addReference(booleanFeature);
+
 			return createPPCell("true", booleanFeature.getName(), parameter, ppMatrix, factors);
 		} else
 
@@ -185,12 +208,16 @@ public class GeneralRegressionModelUtil {
 		if(feature instanceof PowerFeature){
 			PowerFeature powerFeature = (PowerFeature)feature;
 
+			FeatureUtil.addReference(powerFeature);
+
 			return createPPCell(String.valueOf(powerFeature.getPower()), powerFeature.getName(), parameter, ppMatrix, covariates);
 		} else
 
 		{
 			ContinuousFeature continuousFeature = feature.toContinuousFeature();
 
+			FeatureUtil.addReference(continuousFeature);
+
 			return createPPCell("1", continuousFeature.getName(), parameter, ppMatrix, covariates);
 		}
 	}
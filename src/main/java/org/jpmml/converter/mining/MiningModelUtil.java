@@ -26,6 +26,8 @@ import java.util.Objects;
 import java.util.function.Function;
 
 import com.google.common.collect.Iterables;
+import org.dmg.pmml.Extension;
+import org.dmg.pmml.HasExtensions;
 import org.dmg.pmml.MathContext;
 import org.dmg.pmml.MiningFunction;
 import org.dmg.pmml.Model;
@@ -41,6 +43,7 @@ import org.jpmml.converter.CategoricalLabel;
 import org.jpmml.converter.ContinuousFeature;
 import org.jpmml.converter.Feature;
 import org.jpmml.converter.ModelUtil;
+import org.jpmml.converter.PMMLObjectUtil;
 import org.jpmml.converter.Schema;
 import org.jpmml.converter.ValueUtil;
 import org.jpmml.converter.regression.RegressionModelUtil;
@@ -112,7 +115,7 @@ public class MiningModelUtil {
 
 			Feature feature = MiningModelUtil.MODEL_PREDICTION.apply(model);
 
-			RegressionTable regressionTable = RegressionModelUtil.createRegressionTable(Collections.singletonList(feature), Collections.singletonList(1d), null)
+			RegressionTable regressionTable = RegressionModelUtil.createRegressionTable(mathContext, Collections.singletonList(feature), Collections.singletonList(1d), null)
 				.setTargetCategory(categoricalLabel.getValue(i));
 
 			regressionTables.add(regressionTable);
@@ -180,6 +183,142 @@ public class MiningModelUtil {
 		return new Segmentation(multipleModelMethod, segments);
 	}
 
+	/**
+	 * <p>
+	 * Combines partial mining models into one mining model.
+	 * The partial mining models are typically the result of converting disjoint slices of an ensemble's members in separate processes.
+	 * </p>
+	 *
+	 * <p>
+	 * The partial mining models must agree on the mining function and the multiple model method,
+	 * and must have structurally identical model-level and segmentation-level elements and attributes (mining schema, output, targets, local transformations, extensions etc.).
+	 * The result takes them over from the first partial mining model.
+	 * The segments of all partial mining models are moved over (not copied) in order, and re-numbered.
+	 * If the partial mining models are rejected, then they are left unchanged.
+	 * </p>
+	 *
+	 * @throws IllegalArgumentException If the multiple model method is model chain, or a partial mining model lacks a segmentation, or the partial mining models are not compatible.
+	 */
+	static
+	public MiningModel mergeModels(List<? extends MiningModel> miningModels){
+
+		if(miningModels.size() < 1){
+			throw new IllegalArgumentException();
+		}
+
+		MiningModel firstMiningModel = miningModels.get(0);
+
+		Segmentation firstSegmentation = firstMiningModel.getSegmentation();
+		if(firstSegmentation == null){
+			throw new IllegalArgumentException();
+		}
+
+		Segmentation.MultipleModelMethod multipleModelMethod = firstSegmentation.getMultipleModelMethod();
+		switch(multipleModelMethod){
+			case MODEL_CHAIN:
+				throw new IllegalArgumentException();
+			default:
+				break;
+		}
+
+		// All partial mining models are validated before any of them is modified
+		for(MiningModel miningModel : miningModels){
+			Segmentation segmentation = miningModel.getSegmentation();
+
+			if(segmentation == null || !isMergeable(firstMiningModel, miningModel) || !isMergeable(firstSegmentation, segmentation)){
+				throw new IllegalArgumentException();
+			}
+		}
+
+		List<Segment> segments = new ArrayList<>();
+
+		for(MiningModel miningModel : miningModels){
+			Segmentation segmentation = miningModel.getSegmentation();
+
+			if(segmentation.hasSegments()){
+				segments.addAll(segmentation.getSegments());
+
+				(segmentation.getSegments()).clear();
+			}
+		}
+
+		for(int i = 0; i < segments.size(); i++){
+			Segment segment = segments.get(i);
+
+			segment.setId(String.valueOf(i + 1));
+		}
+
+		Segmentation segmentation = new Segmentation(multipleModelMethod, segments)
+			.setLocalTransformations(firstSegmentation.getLocalTransformations());
+
+		if(firstSegmentation.hasExtensions()){
+			(segmentation.getExtensions()).addAll(firstSegmentation.getExtensions());
+		}
+
+		MiningModel miningModel = new MiningModel(firstMiningModel.getMiningFunction(), firstMiningModel.getMiningSchema())
+			.setModelName(firstMiningModel.getModelName())
+			.setAlgorithmName(firstMiningModel.getAlgorithmName())
+			.setScorable(firstMiningModel.isScorable())
+			.setMathContext(firstMiningModel.getMathContext())
+			.setOutput(firstMiningModel.getOutput())
+			.setModelStats(firstMiningModel.getModelStats())
+			.setModelExplanation(firstMiningModel.getModelExplanation())
+			.setTargets(firstMiningModel.getTargets())
+			.setLocalTransformations(firstMiningModel.getLocalTransformations())
+			.setModelVerification(firstMiningModel.getModelVerification())
+			.setSegmentation(segmentation);
+
+		if(firstMiningModel.hasExtensions()){
+			(miningModel.getExtensions()).addAll(firstMiningModel.getExtensions());
+		} // End if
+
+		if(firstMiningModel.hasEmbeddedModels()){
+			(miningModel.getEmbeddedModels()).addAll(firstMiningModel.getEmbeddedModels());
+		}
+
+		return miningModel;
+	}
+
+	static
+	private boolean isMergeable(MiningModel left, MiningModel right){
+
+		if(left == right){
+			return true;
+		}
+
+		return Objects.equals(left.getMiningFunction(), right.getMiningFunction())
+			&& Objects.equals(left.getModelName(), right.getModelName())
+			&& Objects.equals(left.getAlgorithmName(), right.getAlgorithmName())
+			&& (left.isScorable() == right.isScorable())
+			&& Objects.equals(left.getMathContext(), right.getMathContext())
+			&& PMMLObjectUtil.deepEquals(getExtensions(left), getExtensions(right))
+			&& PMMLObjectUtil.deepEquals(left.getMiningSchema(), right.getMiningSchema())
+			&& PMMLObjectUtil.deepEquals(left.getOutput(), right.getOutput())
+			&& PMMLObjectUtil.deepEquals(left.getModelStats(), right.getModelStats())
+			&& PMMLObjectUtil.deepEquals(left.getModelExplanation(), right.getModelExplanation())
+			&& PMMLObjectUtil.deepEquals(left.getTargets(), right.getTargets())
+			&& PMMLObjectUtil.deepEquals(left.getLocalTransformations(), right.getLocalTransformations())
+			&& PMMLObjectUtil.deepEquals((left.hasEmbeddedModels() ? left.getEmbeddedModels() : Collections.emptyList()), (right.hasEmbeddedModels() ? right.getEmbeddedModels() : Collections.emptyList()))
+			&& PMMLObjectUtil.deepEquals(left.getModelVerification(), right.getModelVerification());
+	}
+
+	static
+	private boolean isMergeable(Segmentation left, Segmentation right){
+
+		if(left == right){
+			return true;
+		}
+
+		return Objects.equals(left.getMultipleModelMethod(), right.getMultipleModelMethod())
+			&& PMMLObjectUtil.deepEquals(getExtensions(left), getExtensions(right))
+			&& PMMLObjectUtil.deepEquals(left.getLocalTransformations(), right.getLocalTransformations());
+	}
+
+	static
+	private List<Extension> getExtensions(HasExtensions<?> object){
+		return (object.hasExtensions() ? object.getExtensions() : Collections.<Extension>emptyList());
+	}
+
 	private static final Function<Model, Feature> MODEL_PREDICTION = new Function<Model, Feature>(){
 
 		@Override
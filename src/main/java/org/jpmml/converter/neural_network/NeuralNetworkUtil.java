@@ -39,10 +39,13 @@ import org.dmg.pmml.neural_network.NeuralOutputs;
 import org.dmg.pmml.neural_network.Neuron;
 import org.jpmml.converter.BinaryFeature;
 import org.jpmml.converter.BooleanFeature;
+import org.jpmml.converter.CategoricalFeature;
 import org.jpmml.converter.CategoricalLabel;
 import org.jpmml.converter.ContinuousFeature;
 import org.jpmml.converter.ContinuousLabel;
 import org.jpmml.converter.Feature;
+import org.jpmml.converter.FeatureUtil;
+import org.jpmml.converter.HasBinaryFeatures;
 import org.jpmml.converter.ValueUtil;
 
 public class NeuralNetworkUtil {
@@ -54,27 +57,43 @@ public class NeuralNetworkUtil {
 	public NeuralInputs createNeuralInputs(List<? extends Feature> features, DataType dataType){
 		NeuralInputs neuralInputs = new NeuralInputs();
 
-		for(int i = 0; i < features.size(); i++){
-			Feature feature = features.get(i);
+		HasBinaryFeatures binaryFeatures = (features instanceof HasBinaryFeatures ? (HasBinaryFeatures)features : null);
 
+		for(int i = 0; i < features.size(); i++){
 			Expression expression;
 
-			if(feature instanceof BinaryFeature){
-				BinaryFeature binaryFeature = (BinaryFeature)feature;
-
-				expression = new NormDiscrete(binaryFeature.getName(), binaryFeature.getValue());
-			} else
+			CategoricalFeature categoricalFeature = (binaryFeatures != null ? binaryFeatures.getCategoricalFeature(i) : null);
 
-			if(feature instanceof BooleanFeature){
-				BooleanFeature booleanFeature = (BooleanFeature)feature;
+			if(categoricalFeature != null){
+				FeatureUtil.addReference(categoricalFeature);
 
-				expression = new NormDiscrete(booleanFeature.getName(), "true");
+				expression = new NormDiscrete(categoricalFeature.getName(), binaryFeatures.getValue(i));
 			} else
 
 			{
-				ContinuousFeature continuousFeature = feature.toContinuousFeature();
+				Feature feature = features.get(i);
+
+				if(feature instanceof BinaryFeature){
+					BinaryFeature binaryFeature = (BinaryFeature)feature;
+
+					FeatureUtil.addReference(binaryFeature);
+
+					expression = new NormDiscrete(binaryFeature.getName(), binaryFeature.getValue());
+				} else
+
+				if(feature instanceof BooleanFeature){
+					BooleanFeature booleanFeature = (BooleanFeature)feature;
+
+					FeatureUtil.addReference(booleanFeature);
+
+					expression = new NormDiscrete(booleanFeature.getName(), "true");
+				} else
+
+				{
+					ContinuousFeature continuousFeature = feature.toContinuousFeature();
 
-				expression = continuousFeature.ref();
+					expression = continuousFeature.ref();
+				}
 			}
 
 			DerivedField derivedField = new DerivedField(OpType.CONTINUOUS, dataType)
@@ -18,6 +18,7 @@
  */
 package org.jpmml.converter.regression;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -32,11 +33,14 @@ import org.dmg.pmml.regression.RegressionModel;
 import org.dmg.pmml.regression.RegressionTable;
 import org.jpmml.converter.BinaryFeature;
 import org.jpmml.converter.BooleanFeature;
+import org.jpmml.converter.CategoricalFeature;
 import org.jpmml.converter.CategoricalLabel;
 import org.jpmml.converter.ConstantFeature;
 import org.jpmml.converter.ContinuousFeature;
 import org.jpmml.converter.ContinuousLabel;
 import org.jpmml.converter.Feature;
+import org.jpmml.converter.FeatureUtil;
+import org.jpmml.converter.HasBinaryFeatures;
 import org.jpmml.converter.InteractionFeature;
 import org.jpmml.converter.ModelUtil;
 import org.jpmml.converter.PowerFeature;
@@ -77,7 +81,7 @@ public class RegressionModelUtil {
 		RegressionModel regressionModel = new RegressionModel(MiningFunction.REGRESSION, ModelUtil.createMiningSchema(continuousLabel), null)
 			.setNormalizationMethod(normalizationMethod)
 			.setMathContext(ModelUtil.simplifyMathContext(mathContext))
-			.addRegressionTables(createRegressionTable(features, coefficients, intercept));
+			.addRegressionTables(createRegressionTable(mathContext, features, coefficients, intercept));
 
 		return regressionModel;
 	}
@@ -110,7 +114,7 @@ public class RegressionModelUtil {
 			}
 		}
 
-		RegressionTable activeRegressionTable = RegressionModelUtil.createRegressionTable(features, coefficients, intercept)
+		RegressionTable activeRegressionTable = RegressionModelUtil.createRegressionTable(mathContext, features, coefficients, intercept)
 			.setTargetCategory(categoricalLabel.getValue(1));
 
 		RegressionTable passiveRegressionTable = RegressionModelUtil.createRegressionTable(Collections.emptyList(), Collections.emptyList(), null)
@@ -125,8 +129,55 @@ public class RegressionModelUtil {
 		return regressionModel;
 	}
 
+	/**
+	 * <p>
+	 * Creates a regression table from sparse coefficients.
+	 * Only the features with non-zero coefficients are accessed, so the cost is proportional to the number of non-zero coefficients rather than the number of features.
+	 * </p>
+	 *
+	 * @param indexes Feature indexes.
+	 * @param coefficients Coefficients, parallel to feature indexes.
+	 *
+	 * @see org.jpmml.converter.HashingSchema
+	 */
+	static
+	public RegressionTable createRegressionTable(List<? extends Feature> features, int[] indexes, double[] coefficients, Double intercept){
+
+		if(indexes.length != coefficients.length){
+			throw new IllegalArgumentException();
+		}
+
+		List<Feature> selectedFeatures = new ArrayList<>(indexes.length);
+		List<Double> selectedCoefficients = new ArrayList<>(indexes.length);
+
+		for(int i = 0; i < indexes.length; i++){
+			double coefficient = coefficients[i];
+
+			if(ValueUtil.isZeroLike(coefficient)){
+				continue;
+			}
+
+			selectedFeatures.add(features.get(indexes[i]));
+			selectedCoefficients.add(coefficient);
+		}
+
+		return createRegressionTable(selectedFeatures, selectedCoefficients, intercept);
+	}
+
 	static
 	public RegressionTable createRegressionTable(List<? extends Feature> features, List<Double> coefficients, Double intercept){
+		return createRegressionTable(null, features, coefficients, intercept);
+	}
+
+	/**
+	 * <p>
+	 * Creates a regression table for the specified math context.
+	 * In <code>float</code> math context, the intercept and all coefficients are rounded to <code>float</code> precision after constant folding,
+	 * so that they are formatted using the shortest decimal representation of the <code>float</code> value.
+	 * </p>
+	 */
+	static
+	public RegressionTable createRegressionTable(MathContext mathContext, List<? extends Feature> features, List<Double> coefficients, Double intercept){
 
 		if(features.size() != coefficients.size()){
 			throw new IllegalArgumentException();
@@ -138,17 +189,37 @@ public class RegressionModelUtil {
 			regressionTable.setIntercept(intercept);
 		}
 
+		HasBinaryFeatures binaryFeatures = (features instanceof HasBinaryFeatures ? (HasBinaryFeatures)features : null);
+
 		for(int i = 0; i < features.size(); i++){
-			Feature feature = features.get(i);
 			Double coefficient = coefficients.get(i);
 
 			if(coefficient == null || ValueUtil.isZeroLike(coefficient)){
 				continue;
 			} // End if
 
+			CategoricalFeature categoricalFeature = (binaryFeatures != null ? binaryFeatures.getCategoricalFeature(i) : null);
+
+			if(categoricalFeature != null){
+				FeatureUtil.addReference(categoricalFeature);
+
+				CategoricalPredictor categoricalPredictor = new CategoricalPredictor()
+					.setName(categoricalFeature.getName())
+					.setValue(binaryFeatures.getValue(i))
+					.setCoefficient(coefficient);
+
+				regressionTable.addCategoricalPredictors(categoricalPredictor);
+
+				continue;
+			}
+
+			Feature feature = features.get(i);
+
 			if(feature instanceof BinaryFeature){
 				BinaryFeature binaryFeature = (BinaryFeature)feature;
 
+				FeatureUtil.addReference(binaryFeature);
+
 				CategoricalPredictor categoricalPredictor = new CategoricalPredictor()
 					.setName(binaryFeature.getName())
 					.setValue(binaryFeature.getValue())
@@ -160,6 +231,8 @@ public class RegressionModelUtil {
 			if(feature instanceof BooleanFeature){
 				BooleanFeature booleanFeature = (BooleanFeature)feature;
 
+				FeatureUtil.addReference(booleanFeature);
+
 				CategoricalPredictor categoricalPredictor = new CategoricalPredictor()
 					.setName(booleanFeature.getName())
 					.setValue("true")
@@ -224,6 +297,8 @@ public class RegressionModelUtil {
 			if(feature instanceof PowerFeature){
 				PowerFeature powerFeature = (PowerFeature)feature;
 
+				FeatureUtil.addReference(powerFeature);
+
 				NumericPredictor numericPredictor = new NumericPredictor()
 					.setName(powerFeature.getName())
 					.setExponent(powerFeature.getPower())
@@ -235,6 +310,8 @@ public class RegressionModelUtil {
 			{
 				ContinuousFeature continuousFeature = feature.toContinuousFeature();
 
+				FeatureUtil.addReference(continuousFeature);
+
 				NumericPredictor numericPredictor = new NumericPredictor()
 					.setName(continuousFeature.getName())
 					.setCoefficient(coefficient);
@@ -243,6 +320,34 @@ public class RegressionModelUtil {
 			}
 		}
 
+		if((MathContext.FLOAT).equals(mathContext)){
+			regressionTable.setIntercept(ValueUtil.asDouble(mathContext, regressionTable.getIntercept()));
+
+			if(regressionTable.hasNumericPredictors()){
+				List<NumericPredictor> numericPredictors = regressionTable.getNumericPredictors();
+
+				for(NumericPredictor numericPredictor : numericPredictors){
+					numericPredictor.setCoefficient(ValueUtil.asDouble(mathContext, numericPredictor.getCoefficient()));
+				}
+			} // End if
+
+			if(regressionTable.hasCategoricalPredictors()){
+				List<CategoricalPredictor> categoricalPredictors = regressionTable.getCategoricalPredictors();
+
+				for(CategoricalPredictor categoricalPredictor : categoricalPredictors){
+					categoricalPredictor.setCoefficient(ValueUtil.asDouble(mathContext, categoricalPredictor.getCoefficient()));
+				}
+			} // End if
+
+			if(regressionTable.hasPredictorTerms()){
+				List<PredictorTerm> predictorTerms = regressionTable.getPredictorTerms();
+
+				for(PredictorTerm predictorTerm : predictorTerms){
+					predictorTerm.setCoefficient(ValueUtil.asDouble(mathContext, predictorTerm.getCoefficient()));
+				}
+			}
+		}
+
 		return regressionTable;
 	}
 }
\ No newline at end of file
@@ -22,7 +22,10 @@ import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
 
+import org.dmg.pmml.Array;
 import org.dmg.pmml.MiningFunction;
+import org.dmg.pmml.PMMLObject;
+import org.dmg.pmml.RealSparseArray;
 import org.dmg.pmml.regression.CategoricalPredictor;
 import org.dmg.pmml.support_vector_machine.Coefficient;
 import org.dmg.pmml.support_vector_machine.Coefficients;
@@ -38,7 +41,9 @@ import org.jpmml.converter.CMatrixUtil;
 import org.jpmml.converter.CategoricalLabel;
 import org.jpmml.converter.ContinuousFeature;
 import org.jpmml.converter.ContinuousLabel;
+import org.jpmml.converter.DoubleList;
 import org.jpmml.converter.Feature;
+import org.jpmml.converter.FeatureUtil;
 import org.jpmml.converter.Matrix;
 import org.jpmml.converter.ModelUtil;
 import org.jpmml.converter.PMMLUtil;
@@ -129,10 +134,10 @@ public class LibSVMUtil {
 
 		BitSet featureMask = new BitSet(numberOfFeatures);
 
-		Double defaultValue = Double.valueOf(0d);
+		double defaultValue = 0d;
 
 		for(int i = 0; i < numberOfVectors; i++){
-			List<? extends Number> values = sv.getRowValues(i);
+			DoubleList values = ValueUtil.asDoubles(sv.getRowValues(i));
 
 			BitSet vectorFeatureMask = ValueUtil.getIndices(values, defaultValue);
 
@@ -156,6 +161,8 @@ public class LibSVMUtil {
 			if(feature instanceof BinaryFeature){
 				BinaryFeature binaryFeature = (BinaryFeature)feature;
 
+				FeatureUtil.addReference(binaryFeature);
+
 				CategoricalPredictor categoricalPredictor = new CategoricalPredictor(binaryFeature.getName(), binaryFeature.getValue(), 1d);
 
 				vectorFields.addContent(categoricalPredictor);
@@ -171,7 +178,7 @@ public class LibSVMUtil {
 		VectorDictionary vectorDictionary = new VectorDictionary(vectorFields);
 
 		for(int i = 0; i < numberOfVectors; i++){
-			List<? extends Number> values = sv.getRowValues(i);
+			DoubleList values = ValueUtil.asDoubles(sv.getRowValues(i));
 
 			if(numberOfUsedFeatures < numberOfFeatures){
 				values = ValueUtil.filterByIndices(values, featureMask);
@@ -179,12 +186,14 @@ public class LibSVMUtil {
 
 			VectorInstance vectorInstance = new VectorInstance(ids.get(i));
 
-			if(ValueUtil.isSparse(values, defaultValue, 0.75d)){
-				vectorInstance.setRealSparseArray(PMMLUtil.createRealSparseArray(values, defaultValue));
+			PMMLObject vector = PMMLUtil.createRealVector(values, defaultValue);
+
+			if(vector instanceof RealSparseArray){
+				vectorInstance.setRealSparseArray((RealSparseArray)vector);
 			} else
 
 			{
-				vectorInstance.setArray(PMMLUtil.createRealArray(values));
+				vectorInstance.setArray((Array)vector);
 			}
 
 			vectorDictionary.addVectorInstances(vectorInstance);
@@ -35,6 +35,12 @@ public class CMatrixUtilTest extends MatrixUtilTest {
 		for(int i = 0; i < columns.length; i++){
 			assertEquals(columns[i], CMatrixUtil.getColumn(values, 3, 4, i));
 		}
+
+		DoubleList doubleValues = new DoubleList(new double[]{11d, 12d, 21d, 22d, 31d, 32d});
+
+		DoubleList column = CMatrixUtil.getColumn(doubleValues, 3, 2, 1);
+
+		assertEquals(Arrays.asList(12d, 22d, 32d), column);
 	}
 
 	@Test
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.FieldName;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ColumnarFeatureListTest {
+
+	@Test
+	public void get(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		FieldName x = FieldName.create("x");
+		FieldName y = FieldName.create("y");
+
+		ColumnarFeatureList features = new ColumnarFeatureList(encoder);
+		features.addContinuous(x, DataType.DOUBLE);
+
+		for(int i = 0; i < 100; i++){
+			features.addBinary(y, DataType.INTEGER, String.valueOf(i % 10));
+		}
+
+		Feature constantFeature = new ConstantFeature(encoder, 1d);
+
+		features.add(constantFeature);
+
+		assertEquals(102, features.size());
+
+		Feature feature = features.get(0);
+
+		assertEquals(ContinuousFeature.class, feature.getClass());
+		assertEquals(new ContinuousFeature(encoder, x, DataType.DOUBLE), feature);
+
+		feature = features.get(13);
+
+		assertEquals(BinaryFeature.class, feature.getClass());
+		assertEquals("2", ((BinaryFeature)feature).getValue());
+
+		assertSame(feature, features.get(13));
+		assertSame(feature, features.get(23));
+
+		assertSame(constantFeature, features.get(101));
+
+		List<Feature> copy = Arrays.asList(features.toArray(new Feature[features.size()]));
+
+		assertTrue(features.equals(copy));
+
+		Schema schema = new Schema(null, features);
+
+		assertEquals(feature, schema.getFeature(13));
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.dmg.pmml.DataField;
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.DefineFunction;
+import org.dmg.pmml.DerivedField;
+import org.dmg.pmml.Expression;
+import org.dmg.pmml.FieldName;
+import org.dmg.pmml.FieldRef;
+import org.dmg.pmml.OpType;
+import org.dmg.pmml.PMML;
+import org.dmg.pmml.ParameterField;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentModelEncoderTest {
+
+	@Test
+	public void ensureDerivedField(){
+		List<FieldName> sequentialNames = encode(false);
+		List<FieldName> parallelNames = encode(true);
+
+		assertEquals(1 + 100 + 100, sequentialNames.size());
+		assertEquals(sequentialNames, parallelNames);
+	}
+
+	@Test
+	public void createDerivedField(){
+		ConcurrentModelEncoder encoder = new ConcurrentModelEncoder();
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		IntStream.range(0, 100).parallel()
+			.forEach(i -> encoder.createDerivedField(FieldName.create("log(x)#" + i), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("log", new FieldRef(dataField.getName()))));
+
+		PMML pmml = encoder.encodePMML();
+
+		List<DerivedField> derivedFields = (pmml.getTransformationDictionary()).getDerivedFields();
+
+		assertEquals(1, derivedFields.size());
+		assertEquals(FieldName.create("log(x)#0"), (derivedFields.get(0)).getName());
+	}
+
+	@Test
+	public void encodePMML(){
+		List<FieldName> sequentialNames = encode(new ModelEncoder());
+		List<FieldName> concurrentNames = encode(new ConcurrentModelEncoder());
+
+		// Creation order
+		assertEquals(Arrays.asList(FieldName.create("z"), FieldName.create("y")), sequentialNames);
+
+		// Name order
+		assertEquals(Arrays.asList(FieldName.create("y"), FieldName.create("z")), concurrentNames);
+	}
+
+	@Test
+	public void encodePMMLInOrder(){
+		ConcurrentModelEncoder encoder = new ConcurrentModelEncoder();
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		encoder.createDerivedField(FieldName.create("z"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("exp", new FieldRef(dataField.getName())));
+		encoder.createDerivedField(FieldName.create("a"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("log", new FieldRef(FieldName.create("z"))));
+		encoder.createDerivedField(FieldName.create("b"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("sqrt", new FieldRef(dataField.getName())));
+
+		encoder.addDefineFunction(createDefineFunction("g", PMMLUtil.createApply("exp", new FieldRef(FieldName.create("value")))));
+		encoder.addDefineFunction(createDefineFunction("f", PMMLUtil.createApply("g", new FieldRef(FieldName.create("value")))));
+
+		PMML pmml = encoder.encodePMML();
+
+		// Topological order, with ties broken by name order
+		assertEquals(Arrays.asList(FieldName.create("b"), FieldName.create("z"), FieldName.create("a")), getDerivedFieldNames(pmml));
+
+		List<DefineFunction> defineFunctions = (pmml.getTransformationDictionary()).getDefineFunctions();
+
+		assertEquals("g", (defineFunctions.get(0)).getName());
+		assertEquals("f", (defineFunctions.get(1)).getName());
+	}
+
+	@Test
+	public void fork(){
+		ConcurrentModelEncoder encoder = new ConcurrentModelEncoder();
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CATEGORICAL, DataType.INTEGER);
+
+		encoder.freeze();
+
+		ConcurrentModelEncoder forkedEncoder = encoder.fork();
+
+		assertTrue(forkedEncoder.isThreadSafe());
+
+		IntStream.range(0, 1000).parallel()
+			.forEach(i -> (new BinaryFeature(forkedEncoder, dataField, String.valueOf(i % 10))).toContinuousFeature());
+
+		PMML pmml = forkedEncoder.encodePMML();
+
+		assertEquals(10, ((pmml.getTransformationDictionary()).getDerivedFields()).size());
+		assertNull(encoder.getDerivedField(FieldName.create("x=0")));
+	}
+
+	static
+	private List<FieldName> encode(PMMLEncoder encoder){
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		encoder.createDerivedField(FieldName.create("z"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("exp", new FieldRef(dataField.getName())));
+		encoder.createDerivedField(FieldName.create("y"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("log", new FieldRef(dataField.getName())));
+
+		return getDerivedFieldNames(encoder.encodePMML());
+	}
+
+	static
+	private DefineFunction createDefineFunction(String name, Expression expression){
+		DefineFunction defineFunction = new DefineFunction()
+			.setName(name)
+			.setOpType(OpType.CONTINUOUS)
+			.setDataType(DataType.DOUBLE)
+			.addParameterFields(new ParameterField(FieldName.create("value")))
+			.setExpression(expression);
+
+		return defineFunction;
+	}
+
+	static
+	private List<FieldName> getDerivedFieldNames(PMML pmml){
+		List<FieldName> result = new ArrayList<>();
+
+		List<DerivedField> derivedFields = (pmml.getTransformationDictionary()).getDerivedFields();
+		for(DerivedField derivedField : derivedFields){
+			result.add(derivedField.getName());
+		}
+
+		return result;
+	}
+
+	static
+	private List<FieldName> encode(boolean parallel){
+		ConcurrentModelEncoder encoder = new ConcurrentModelEncoder();
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CATEGORICAL, DataType.INTEGER);
+
+		IntStream stream = IntStream.range(0, 10000);
+		if(parallel){
+			stream = stream.parallel();
+		}
+
+		stream.forEach(i -> {
+			BinaryFeature binaryFeature = new BinaryFeature(encoder, dataField, String.valueOf(i % 100));
+
+			ContinuousFeature continuousFeature = binaryFeature.toContinuousFeature();
+
+			continuousFeature.toContinuousFeature(DataType.FLOAT);
+
+			(new ConstantFeature(encoder, 1)).toContinuousFeature();
+		});
+
+		return getDerivedFieldNames(encoder.encodePMML());
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import org.dmg.pmml.Apply;
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.FieldName;
+import org.dmg.pmml.FieldRef;
+import org.dmg.pmml.OpType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+public class ExpressionKeyTest {
+
+	@Test
+	public void equals(){
+		ExpressionKey key = createKey(DataType.DOUBLE, "-", "x", "y");
+
+		assertEquals(key, createKey(DataType.DOUBLE, "-", "x", "y"));
+		assertEquals(key.hashCode(), (createKey(DataType.DOUBLE, "-", "x", "y")).hashCode());
+
+		ExpressionKey swappedKey = createKey(DataType.DOUBLE, "-", "y", "x");
+
+		assertNotEquals(key, swappedKey);
+		assertNotEquals(key.hashCode(), swappedKey.hashCode());
+
+		assertNotEquals(key, createKey(DataType.FLOAT, "-", "x", "y"));
+		assertNotEquals(key, createKey(DataType.DOUBLE, "+", "x", "y"));
+	}
+
+	@Test
+	public void hashCollision(){
+		// The strings "Aa" and "BB" have the same hash code
+		ExpressionKey key = createKey(DataType.DOUBLE, "-", "Aa", "x");
+		ExpressionKey collidingKey = createKey(DataType.DOUBLE, "-", "BB", "x");
+
+		assertNotEquals(key, collidingKey);
+
+		assertFalse(PMMLObjectUtil.deepEquals(createApply("-", "Aa", "x"), createApply("-", "BB", "x")));
+	}
+
+	static
+	private ExpressionKey createKey(DataType dataType, String function, String left, String right){
+		return new ExpressionKey(OpType.CONTINUOUS, dataType, createApply(function, left, right));
+	}
+
+	static
+	private Apply createApply(String function, String left, String right){
+		return PMMLUtil.createApply(function, new FieldRef(FieldName.create(left)), new FieldRef(FieldName.create(right)));
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.FieldName;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FeatureManagerTest {
+
+	@Test
+	public void intern(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		FeatureManager featureManager = new FeatureManager();
+
+		ContinuousFeature x = featureManager.createContinuousFeature(encoder, FieldName.create("x"), DataType.DOUBLE);
+
+		assertSame(x, featureManager.createContinuousFeature(encoder, FieldName.create("x"), DataType.DOUBLE));
+		assertNotSame(x, featureManager.createContinuousFeature(encoder, FieldName.create("x"), DataType.FLOAT));
+		assertNotSame(x, featureManager.createContinuousFeature(new PMMLEncoder(), FieldName.create("x"), DataType.DOUBLE));
+
+		BinaryFeature y = featureManager.createBinaryFeature(encoder, FieldName.create("y"), DataType.STRING, "a");
+
+		InteractionFeature interactionFeature = featureManager.createInteractionFeature(encoder, FieldName.create("x:y"), DataType.DOUBLE, Arrays.asList(new ContinuousFeature(encoder, FieldName.create("x"), DataType.DOUBLE), y));
+
+		assertSame(x, (interactionFeature.getFeatures()).get(0));
+		assertSame(interactionFeature, featureManager.createInteractionFeature(encoder, FieldName.create("x:y"), DataType.DOUBLE, Arrays.asList(x, y)));
+
+		Feature reboundX = x.rebind(new PMMLEncoder());
+
+		assertEquals(FieldName.create("x"), reboundX.getName());
+		assertNotSame(x, featureManager.intern(reboundX));
+	}
+
+	@Test
+	public void forkAndMerge(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		FeatureManager featureManager = new FeatureManager();
+
+		ContinuousFeature x = featureManager.createContinuousFeature(encoder, FieldName.create("x"), DataType.DOUBLE);
+
+		encoder.freeze();
+
+		PMMLEncoder firstEncoder = encoder.fork();
+		PMMLEncoder secondEncoder = encoder.fork();
+
+		ContinuousFeature firstX = featureManager.intern((ContinuousFeature)x.rebind(firstEncoder), ContinuousFeature.class);
+		ContinuousFeature secondX = featureManager.intern((ContinuousFeature)x.rebind(secondEncoder), ContinuousFeature.class);
+
+		assertNotSame(x, firstX);
+		assertNotSame(firstX, secondX);
+
+		Feature firstProduct = featureManager.createInteractionFeature(firstEncoder, Arrays.asList(firstX, firstX));
+
+		firstEncoder.merge(secondEncoder);
+
+		assertSame(x, featureManager.createContinuousFeature(encoder, FieldName.create("x"), DataType.DOUBLE));
+		assertSame(firstX, featureManager.createContinuousFeature(firstEncoder, FieldName.create("x"), DataType.DOUBLE));
+		assertSame(firstX, featureManager.intern(x.rebind(firstEncoder)));
+		assertSame(secondX, featureManager.createContinuousFeature(secondEncoder, FieldName.create("x"), DataType.DOUBLE));
+		assertSame(firstProduct, featureManager.createInteractionFeature(firstEncoder, Arrays.asList(x.rebind(firstEncoder), firstX)));
+	}
+
+	@Test
+	public void createInteractionFeature(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		FeatureManager featureManager = new FeatureManager();
+
+		ContinuousFeature a = new ContinuousFeature(encoder, FieldName.create("a"), DataType.DOUBLE);
+		ContinuousFeature b = new ContinuousFeature(encoder, FieldName.create("b"), DataType.DOUBLE);
+		ContinuousFeature c = new ContinuousFeature(encoder, FieldName.create("c"), DataType.DOUBLE);
+
+		Feature ab = featureManager.createInteractionFeature(encoder, Arrays.asList(a, b));
+		Feature ba = featureManager.createInteractionFeature(encoder, Arrays.asList(b, a));
+
+		assertEquals(FieldName.create("a:b"), ab.getName());
+		assertSame(ab, ba);
+
+		Feature cab = featureManager.createInteractionFeature(encoder, Arrays.asList(new ConstantFeature(encoder, 2d), c, ba, new ConstantFeature(encoder, 3d)));
+
+		assertEquals(InteractionFeature.class, cab.getClass());
+
+		List<? extends Feature> inputFeatures = ((InteractionFeature)cab).getInputFeatures();
+
+		assertEquals(4, inputFeatures.size());
+		assertEquals((Double)6d, (Double)((ConstantFeature)inputFeatures.get(0)).getValue());
+		assertEquals(Arrays.asList(a, b, c), inputFeatures.subList(1, 4));
+		assertSame(inputFeatures, ((InteractionFeature)cab).getInputFeatures());
+
+		assertSame(a, featureManager.createInteractionFeature(encoder, Arrays.asList(new ConstantFeature(encoder, 1d), a)));
+	}
+}
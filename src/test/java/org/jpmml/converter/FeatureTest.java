@@ -29,7 +29,9 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class FeatureTest {
 
@@ -53,6 +55,10 @@ public class FeatureTest {
 
 		assertEquals(FieldName.create("float(" + (continuousOne.getName()).getValue() + ")"), continuousFloatOne.getName());
 		assertEquals(DataType.FLOAT, continuousFloatOne.getDataType());
+
+		assertSame(continuousOne, binaryOne.toContinuousFeature());
+		assertSame(continuousFloatOne, binaryOne.toContinuousFeature(DataType.FLOAT));
+		assertNotSame(continuousOne, (new BinaryFeature(encoder, dataField, "1")).toContinuousFeature());
 	}
 
 	@Test
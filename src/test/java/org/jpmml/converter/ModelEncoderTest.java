@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import javax.xml.transform.stream.StreamSource;
+
+import com.google.common.collect.Iterables;
+import org.dmg.pmml.DataField;
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.FieldName;
+import org.dmg.pmml.MiningField;
+import org.dmg.pmml.MiningFunction;
+import org.dmg.pmml.Model;
+import org.dmg.pmml.ModelStats;
+import org.dmg.pmml.OpType;
+import org.dmg.pmml.PMML;
+import org.dmg.pmml.True;
+import org.dmg.pmml.UnivariateStats;
+import org.dmg.pmml.mining.MiningModel;
+import org.dmg.pmml.mining.Segment;
+import org.dmg.pmml.mining.Segmentation;
+import org.dmg.pmml.regression.NumericPredictor;
+import org.dmg.pmml.regression.RegressionModel;
+import org.dmg.pmml.regression.RegressionTable;
+import org.jpmml.converter.mining.MiningModelUtil;
+import org.jpmml.model.JAXBUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ModelEncoderTest {
+
+	@Test
+	public void encodePMML(){
+		ModelEncoder encoder = new ModelEncoder();
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		encoder.addDecorator(dataField.getName(), new ValidValueDecorator().addValues("1", "2"));
+		encoder.addDecorator(dataField.getName(), new ImportanceDecorator().setImportance(0.5d));
+
+		UnivariateStats univariateStats = new UnivariateStats()
+			.setField(dataField.getName());
+
+		encoder.putUnivariateStats(univariateStats);
+
+		List<RegressionModel> regressionModels = Arrays.asList(createRegressionModel(dataField), createRegressionModel(dataField), createRegressionModel(dataField));
+
+		PMML pmml = encoder.encodePMML(regressionModels);
+
+		DataField encodedDataField = Iterables.getOnlyElement((pmml.getDataDictionary()).getDataFields());
+
+		assertEquals(Arrays.asList("1", "2"), PMMLUtil.getValues(encodedDataField));
+
+		for(Model model : pmml.getModels()){
+			MiningField miningField = Iterables.getOnlyElement((model.getMiningSchema()).getMiningFields());
+
+			assertEquals(dataField.getName(), miningField.getName());
+			assertEquals((Double)0.5d, miningField.getImportance());
+
+			ModelStats modelStats = model.getModelStats();
+
+			assertSame(univariateStats, Iterables.getOnlyElement(modelStats.getUnivariateStats()));
+		}
+	}
+
+	@Test
+	public void encodeStreamingPMML() throws Exception {
+		ModelEncoder encoder = new ModelEncoder();
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		encoder.addDecorator(dataField.getName(), new ImportanceDecorator().setImportance(0.5d));
+
+		AtomicInteger count = new AtomicInteger(0);
+
+		Iterator<Segment> segments = IntStream.range(0, 3)
+			.mapToObj(i -> {
+				count.incrementAndGet();
+
+				return new Segment()
+					.setId(String.valueOf(i + 1))
+					.setPredicate(new True())
+					.setModel(createRegressionModel(dataField));
+			})
+			.iterator();
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+		encoder.encodePMML(createMiningModel(dataField), segments, os);
+
+		assertEquals(3, count.get());
+
+		PMML pmml = JAXBUtil.unmarshalPMML(new StreamSource(new ByteArrayInputStream(os.toByteArray())));
+
+		MiningModel miningModel = (MiningModel)Iterables.getOnlyElement(pmml.getModels());
+
+		assertEquals((Double)0.5d, (Iterables.getOnlyElement((miningModel.getMiningSchema()).getMiningFields())).getImportance());
+		assertEquals(3, ((miningModel.getSegmentation()).getSegments()).size());
+
+		// The segments must not create fields, because the dictionaries have been written already
+		segments = IntStream.range(0, 3)
+			.mapToObj(i -> {
+				encoder.createDerivedField(FieldName.create("x" + i), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createConstant(i));
+
+				return new Segment()
+					.setId(String.valueOf(i + 1))
+					.setPredicate(new True())
+					.setModel(createRegressionModel(dataField));
+			})
+			.iterator();
+
+		try {
+			encoder.encodePMML(createMiningModel(dataField), segments, new ByteArrayOutputStream());
+
+			fail();
+		} catch(IllegalStateException ise){
+			// Ignored
+		}
+	}
+
+	@Test
+	public void merge(){
+		ModelEncoder leftEncoder = new ModelEncoder();
+		ModelEncoder rightEncoder = new ModelEncoder();
+
+		FieldName name = FieldName.create("x");
+
+		for(ModelEncoder encoder : Arrays.asList(leftEncoder, rightEncoder)){
+			encoder.createDataField(name, OpType.CONTINUOUS, DataType.DOUBLE);
+		}
+
+		Decorator decorator = new ImportanceDecorator().setImportance(0.5d);
+
+		leftEncoder.addDecorator(name, decorator);
+
+		UnivariateStats univariateStats = new UnivariateStats()
+			.setField(name);
+
+		rightEncoder.putUnivariateStats(univariateStats);
+
+		leftEncoder.merge(rightEncoder);
+
+		assertEquals(Collections.singletonList(decorator), leftEncoder.getDecorators(name));
+		assertSame(univariateStats, leftEncoder.getUnivariateStats(name));
+
+		ModelEncoder conflictingEncoder = new ModelEncoder();
+		conflictingEncoder.createDataField(name, OpType.CONTINUOUS, DataType.DOUBLE);
+		conflictingEncoder.putUnivariateStats(name, new UnivariateStats().setField(FieldName.create("y")));
+
+		try {
+			leftEncoder.merge(conflictingEncoder);
+
+			fail();
+		} catch(IllegalArgumentException iae){
+			// Ignored
+		}
+	}
+
+	static
+	private MiningModel createMiningModel(DataField dataField){
+		MiningField miningField = ModelUtil.createMiningField(dataField.getName());
+
+		MiningModel miningModel = new MiningModel(MiningFunction.REGRESSION, ModelUtil.createMiningSchema(null).addMiningFields(miningField))
+			.setSegmentation(MiningModelUtil.createSegmentation(Segmentation.MultipleModelMethod.SUM, Collections.<Model>emptyList()));
+
+		return miningModel;
+	}
+
+	static
+	private RegressionModel createRegressionModel(DataField dataField){
+		MiningField miningField = ModelUtil.createMiningField(dataField.getName());
+
+		RegressionTable regressionTable = new RegressionTable(0d)
+			.addNumericPredictors(new NumericPredictor(dataField.getName(), 1d));
+
+		RegressionModel regressionModel = new RegressionModel(MiningFunction.REGRESSION, ModelUtil.createMiningSchema(null).addMiningFields(miningField), null)
+			.addRegressionTables(regressionTable);
+
+		return regressionModel;
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import org.dmg.pmml.DataDictionary;
+import org.dmg.pmml.DataField;
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.DerivedField;
+import org.dmg.pmml.FieldName;
+import org.dmg.pmml.FieldRef;
+import org.dmg.pmml.Header;
+import org.dmg.pmml.Model;
+import org.dmg.pmml.OpType;
+import org.dmg.pmml.OutputField;
+import org.dmg.pmml.PMML;
+import org.dmg.pmml.TransformationDictionary;
+import org.dmg.pmml.regression.RegressionModel;
+import org.jpmml.converter.regression.RegressionModelUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class NameCompactorTest {
+
+	@Test
+	public void applyTo(){
+		ModelEncoder encoder = new ModelEncoder();
+		encoder.setCompactNames(true);
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+		DataField targetDataField = encoder.createDataField(FieldName.create("y"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		ContinuousFeature floatFeature = (new ContinuousFeature(encoder, dataField)).toContinuousFeature(DataType.FLOAT);
+
+		DerivedField derivedField = encoder.createDerivedField(FieldName.create("log"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("log", floatFeature.ref()));
+
+		List<Feature> features = Arrays.<Feature>asList(floatFeature, new ContinuousFeature(encoder, derivedField));
+
+		Schema schema = new Schema(new ContinuousLabel(targetDataField), features);
+
+		PMML pmml = encoder.encodePMML(createRegressionModel(features, schema));
+
+		NameCompactor nameCompactor = encoder.getNameCompactor();
+
+		FieldName compactName = FieldName.create("f0");
+
+		assertEquals(FieldName.create("float(x)"), (nameCompactor.getFieldNameMapping()).get(compactName));
+		assertEquals(1, (nameCompactor.getFieldNameMapping()).size());
+
+		Set<FieldName> names = checkReferences(pmml);
+
+		assertTrue(names.contains(compactName));
+		assertFalse(names.contains(FieldName.create("float(x)")));
+		assertTrue(names.contains(FieldName.create("log")));
+		assertTrue(names.contains(FieldName.create("prediction")));
+
+		// The encoder keeps the original names
+		assertNotNull(encoder.getDerivedField(FieldName.create("float(x)")));
+		assertEquals(FieldName.create("float(x)"), (encoder.getDerivedField(FieldName.create("float(x)"))).getName());
+
+		pmml = encoder.encodePMML(createRegressionModel(features, schema));
+
+		assertEquals(1, (nameCompactor.getFieldNameMapping()).size());
+
+		names = checkReferences(pmml);
+
+		assertTrue(names.contains(compactName));
+	}
+
+	@Test
+	public void applyToClashingDocument(){
+		NameCompactor nameCompactor = new NameCompactor();
+
+		PMML pmml = createPMML(Arrays.asList("x"));
+
+		pmml = nameCompactor.applyTo(pmml, name -> true);
+
+		assertEquals(FieldName.create("float(x)"), (nameCompactor.getFieldNameMapping()).get(FieldName.create("f0")));
+
+		// The later document has a data field that is named like the earlier compact name
+		pmml = createPMML(Arrays.asList("x", "f0"));
+
+		pmml = nameCompactor.applyTo(pmml, name -> true);
+
+		assertEquals(FieldName.create("float(x)"), (nameCompactor.getFieldNameMapping()).get(FieldName.create("f1")));
+		assertEquals(FieldName.create("float(f0)"), (nameCompactor.getFieldNameMapping()).get(FieldName.create("f2")));
+
+		Set<FieldName> names = checkReferences(pmml);
+
+		assertEquals(new HashSet<>(Arrays.asList(FieldName.create("x"), FieldName.create("f0"), FieldName.create("f1"), FieldName.create("f2"))), names);
+	}
+
+	static
+	private PMML createPMML(List<String> names){
+		DataDictionary dataDictionary = new DataDictionary();
+
+		TransformationDictionary transformationDictionary = new TransformationDictionary();
+
+		for(String name : names){
+			DataField dataField = new DataField(FieldName.create(name), OpType.CONTINUOUS, DataType.DOUBLE);
+
+			dataDictionary.addDataFields(dataField);
+
+			DerivedField derivedField = new DerivedField(OpType.CONTINUOUS, DataType.FLOAT)
+				.setName(FieldName.create("float(" + name + ")"))
+				.setExpression(new FieldRef(dataField.getName()));
+
+			transformationDictionary.addDerivedFields(derivedField);
+		}
+
+		PMML pmml = new PMML("4.3", new Header(), dataDictionary)
+			.setTransformationDictionary(transformationDictionary);
+
+		return pmml;
+	}
+
+	/**
+	 * <p>
+	 * Checks that every field name (field references, mining fields, output fields etc.) resolves to a data field, a derived field or an output field.
+	 * </p>
+	 *
+	 * @return The names of all fields.
+	 */
+	static
+	private Set<FieldName> checkReferences(PMML pmml){
+		Set<FieldName> names = new HashSet<>();
+
+		for(DataField dataField : (pmml.getDataDictionary()).getDataFields()){
+			names.add(dataField.getName());
+		}
+
+		for(DerivedField derivedField : (pmml.getTransformationDictionary()).getDerivedFields()){
+			names.add(derivedField.getName());
+		}
+
+		for(Model model : pmml.getModels()){
+
+			for(OutputField outputField : (model.getOutput()).getOutputFields()){
+				names.add(outputField.getName());
+			}
+		}
+
+		Multiset<FieldName> references = HashMultiset.create();
+
+		PMMLObjectUtil.collectFieldNames(pmml, references);
+
+		for(FieldName reference : references.elementSet()){
+			assertTrue(reference.getValue(), names.contains(reference));
+		}
+
+		return names;
+	}
+
+	static
+	private RegressionModel createRegressionModel(List<Feature> features, Schema schema){
+		RegressionModel regressionModel = RegressionModelUtil.createRegression(features, Arrays.asList(1d, 2d), null, null, schema)
+			.setOutput(ModelUtil.createPredictedOutput(FieldName.create("prediction"), OpType.CONTINUOUS, DataType.DOUBLE));
+
+		return regressionModel;
+	}
+}
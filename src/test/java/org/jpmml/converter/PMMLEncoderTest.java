@@ -0,0 +1,466 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Iterables;
+import org.dmg.pmml.DataField;
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.DefineFunction;
+import org.dmg.pmml.DerivedField;
+import org.dmg.pmml.FieldName;
+import org.dmg.pmml.FieldRef;
+import org.dmg.pmml.MiningFunction;
+import org.dmg.pmml.MiningSchema;
+import org.dmg.pmml.OpType;
+import org.dmg.pmml.Output;
+import org.dmg.pmml.OutputField;
+import org.dmg.pmml.PMML;
+import org.dmg.pmml.ParameterField;
+import org.dmg.pmml.ResultFeature;
+import org.dmg.pmml.regression.NumericPredictor;
+import org.dmg.pmml.regression.RegressionModel;
+import org.dmg.pmml.regression.RegressionTable;
+import org.jpmml.converter.regression.RegressionModelUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PMMLEncoderTest {
+
+	@Test
+	public void createDerivedField(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		DerivedField first = encoder.createDerivedField(FieldName.create("first"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("*", new FieldRef(FieldName.create("x")), PMMLUtil.createConstant(2)));
+		DerivedField second = encoder.createDerivedField(FieldName.create("second"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("*", new FieldRef(FieldName.create("x")), PMMLUtil.createConstant(2)));
+
+		assertSame(first, second);
+		assertSame(first, encoder.getDerivedField(FieldName.create("second")));
+
+		DerivedField third = encoder.createDerivedField(FieldName.create("third"), OpType.CONTINUOUS, DataType.FLOAT, PMMLUtil.createApply("*", new FieldRef(FieldName.create("x")), PMMLUtil.createConstant(2)));
+		DerivedField fourth = encoder.createDerivedField(FieldName.create("fourth"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("*", new FieldRef(FieldName.create("x")), PMMLUtil.createConstant(3)));
+
+		assertNotSame(first, third);
+		assertNotSame(first, fourth);
+
+		PMML pmml = encoder.encodePMML();
+
+		List<DerivedField> derivedFields = (pmml.getTransformationDictionary()).getDerivedFields();
+
+		assertEquals(3, derivedFields.size());
+
+		assertEquals(FieldName.create("first"), (derivedFields.get(0)).getName());
+
+		encoder.setPruneDerivedFields(true);
+		encoder.addReference(FieldName.create("second"));
+
+		pmml = encoder.encodePMML();
+
+		derivedFields = (pmml.getTransformationDictionary()).getDerivedFields();
+
+		assertEquals(1, derivedFields.size());
+		assertEquals(FieldName.create("first"), (derivedFields.get(0)).getName());
+
+		NumericPredictor numericPredictor = new NumericPredictor(FieldName.create("second"), 1d);
+
+		RegressionModel regressionModel = new RegressionModel(MiningFunction.REGRESSION, new MiningSchema(), null)
+			.addRegressionTables(new RegressionTable(0d).addNumericPredictors(numericPredictor));
+
+		RegressionModel resolvedRegressionModel = (RegressionModel)encoder.resolveAliases(regressionModel);
+
+		assertNotSame(regressionModel, resolvedRegressionModel);
+
+		NumericPredictor resolvedNumericPredictor = Iterables.getOnlyElement(Iterables.getOnlyElement(resolvedRegressionModel.getRegressionTables()).getNumericPredictors());
+
+		assertEquals(FieldName.create("first"), resolvedNumericPredictor.getName());
+		assertEquals(FieldName.create("second"), numericPredictor.getName());
+	}
+
+	@Test
+	public void createDerivedFieldInOrder(){
+		PMML leftPMML = encodeAliasedPMML(Arrays.asList("a", "b", "c"));
+		PMML rightPMML = encodeAliasedPMML(Arrays.asList("c", "b", "a"));
+
+		List<DerivedField> derivedFields = (leftPMML.getTransformationDictionary()).getDerivedFields();
+
+		assertEquals(1, derivedFields.size());
+		assertEquals(FieldName.create("a"), (derivedFields.get(0)).getName());
+
+		assertTrue(PMMLObjectUtil.deepEquals(leftPMML.getDataDictionary(), rightPMML.getDataDictionary()));
+		assertTrue(PMMLObjectUtil.deepEquals(leftPMML.getTransformationDictionary(), rightPMML.getTransformationDictionary()));
+		assertTrue(PMMLObjectUtil.deepEquals(leftPMML.getModels(), rightPMML.getModels()));
+	}
+
+	@Test
+	public void resolveAliases(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		encoder.createDerivedField(FieldName.create("first"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("exp", new FieldRef(FieldName.create("x"))));
+		encoder.createDerivedField(FieldName.create("second"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("exp", new FieldRef(FieldName.create("x"))));
+
+		NumericPredictor numericPredictor = new NumericPredictor(FieldName.create("second"), 1d);
+
+		// The output field is a definition, which merely shares its name with the alias
+		OutputField outputField = new OutputField(FieldName.create("second"), DataType.DOUBLE)
+			.setOpType(OpType.CONTINUOUS)
+			.setResultFeature(ResultFeature.PREDICTED_VALUE);
+
+		RegressionModel regressionModel = new RegressionModel(MiningFunction.REGRESSION, new MiningSchema(), null)
+			.setOutput(new Output().addOutputFields(outputField))
+			.addRegressionTables(new RegressionTable(0d).addNumericPredictors(numericPredictor));
+
+		RegressionModel resolvedRegressionModel = (RegressionModel)encoder.resolveAliases(regressionModel);
+
+		NumericPredictor resolvedNumericPredictor = Iterables.getOnlyElement(Iterables.getOnlyElement(resolvedRegressionModel.getRegressionTables()).getNumericPredictors());
+
+		assertEquals(FieldName.create("first"), resolvedNumericPredictor.getName());
+
+		OutputField resolvedOutputField = Iterables.getOnlyElement((resolvedRegressionModel.getOutput()).getOutputFields());
+
+		assertSame(outputField, resolvedOutputField);
+		assertEquals(FieldName.create("second"), resolvedOutputField.getName());
+	}
+
+	@Test
+	public void declareDerivedField(){
+		PMMLEncoder encoder = new PMMLEncoder();
+		encoder.setPruneDerivedFields(true);
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		AtomicInteger count = new AtomicInteger(0);
+
+		PowerFeature square = new PowerFeature(encoder, dataField, 2);
+		PowerFeature cube = new PowerFeature(encoder, dataField, 3);
+
+		ContinuousFeature continuousSquare = square.toContinuousFeature();
+		ContinuousFeature continuousCube = cube.toContinuousFeature();
+
+		encoder.declareDerivedField(FieldName.create("x^2 (copy)"), OpType.CONTINUOUS, DataType.DOUBLE, () -> {
+			count.incrementAndGet();
+
+			return continuousSquare.ref();
+		});
+
+		assertEquals(0, count.get());
+		assertEquals(0, encoder.getReferenceCount(dataField.getName()));
+
+		continuousCube.ref();
+
+		PMML pmml = encoder.encodePMML();
+
+		List<DerivedField> derivedFields = (pmml.getTransformationDictionary()).getDerivedFields();
+
+		assertEquals(1, derivedFields.size());
+		assertEquals(continuousCube.getName(), (derivedFields.get(0)).getName());
+
+		assertEquals(0, count.get());
+		assertEquals(1, encoder.getReferenceCount(dataField.getName()));
+
+		assertNotNull(encoder.getDerivedField(FieldName.create("x^2 (copy)")));
+
+		assertEquals(1, count.get());
+		// Referencing the "x^2" declaration materializes it, which references "x"
+		assertEquals(2, encoder.getReferenceCount(dataField.getName()));
+		assertEquals(1, encoder.getReferenceCount(continuousSquare.getName()));
+		assertNotNull(encoder.getDerivedField(continuousSquare.getName()));
+	}
+
+	@Test
+	public void declareDerivedFieldInOrder(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		ContinuousFeature floatFeature = (new ContinuousFeature(encoder, dataField)).toContinuousFeature(DataType.FLOAT);
+
+		encoder.createDerivedField(FieldName.create("log"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("log", floatFeature.ref()));
+
+		PMML pmml = encoder.encodePMML();
+
+		List<DerivedField> derivedFields = (pmml.getTransformationDictionary()).getDerivedFields();
+
+		assertEquals(2, derivedFields.size());
+		assertEquals(floatFeature.getName(), (derivedFields.get(0)).getName());
+		assertEquals(FieldName.create("log"), (derivedFields.get(1)).getName());
+	}
+
+	@Test
+	public void pruneDerivedFields(){
+		PMMLEncoder encoder = new PMMLEncoder();
+		encoder.setPruneDerivedFields(true);
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		// A <- B <- C, and A <- D (structurally different from B, so that the two are not aliased)
+		ContinuousFeature a = createDerivedFeature(encoder, "A", "exp", new ContinuousFeature(encoder, dataField));
+		ContinuousFeature b = createDerivedFeature(encoder, "B", "exp", a);
+		ContinuousFeature c = createDerivedFeature(encoder, "C", "exp", b);
+		ContinuousFeature d = createDerivedFeature(encoder, "D", "log", a);
+
+		assertEquals(0, encoder.getReferenceCount(c.getName()));
+
+		d.ref();
+
+		PMML pmml = encoder.encodePMML();
+
+		List<DerivedField> derivedFields = (pmml.getTransformationDictionary()).getDerivedFields();
+
+		assertEquals(2, derivedFields.size());
+		assertEquals(a.getName(), (derivedFields.get(0)).getName());
+		assertEquals(d.getName(), (derivedFields.get(1)).getName());
+
+		// Encoding does not change the reference counts
+		assertEquals(1, encoder.getReferenceCount(b.getName()));
+		assertEquals(2, encoder.getReferenceCount(a.getName()));
+	}
+
+	@Test
+	public void addReference(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		ContinuousFeature continuousFeature = new ContinuousFeature(encoder, dataField);
+
+		encoder.freeze();
+
+		PMMLEncoder forkedEncoder = encoder.fork();
+
+		FeatureUtil.addReference(continuousFeature);
+
+		assertEquals(1, encoder.getReferenceCount(dataField.getName()));
+		assertEquals(1, forkedEncoder.getReferenceCount(dataField.getName()));
+
+		FeatureUtil.addReference(continuousFeature.rebind(forkedEncoder));
+
+		assertEquals(1, encoder.getReferenceCount(dataField.getName()));
+		assertEquals(2, forkedEncoder.getReferenceCount(dataField.getName()));
+	}
+
+	@Test
+	public void fork(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.INTEGER);
+
+		ContinuousFeature continuousFeature = (new ContinuousFeature(encoder, dataField)).toContinuousFeature(DataType.DOUBLE);
+
+		encoder.freeze();
+
+		PMMLEncoder firstEncoder = encoder.fork();
+		PMMLEncoder secondEncoder = encoder.fork();
+
+		ContinuousFeature firstFeature = (ContinuousFeature)continuousFeature.rebind(firstEncoder);
+
+		assertSame(firstEncoder, firstFeature.getEncoder());
+		assertSame(encoder.getDerivedField(continuousFeature.getName()), firstEncoder.getDerivedField(firstFeature.getName()));
+
+		(firstFeature.toContinuousFeature(DataType.FLOAT)).ref();
+
+		assertNotNull(firstEncoder.getDerivedField(FieldName.create("float(double(x))")));
+		assertNull(encoder.getDerivedField(FieldName.create("float(double(x))")));
+		assertNull(secondEncoder.getDerivedField(FieldName.create("float(double(x))")));
+
+		DataField categoricalDataField = (DataField)secondEncoder.toCategorical(dataField.getName(), Arrays.asList("1", "2", "3"));
+
+		assertNotSame(dataField, categoricalDataField);
+		assertSame(categoricalDataField, secondEncoder.getDataField(dataField.getName()));
+
+		assertEquals(OpType.CONTINUOUS, dataField.getOpType());
+		assertEquals(OpType.CATEGORICAL, categoricalDataField.getOpType());
+
+		assertEquals(2, ((firstEncoder.encodePMML()).getTransformationDictionary()).getDerivedFields().size());
+		assertEquals(1, ((secondEncoder.encodePMML()).getTransformationDictionary()).getDerivedFields().size());
+
+		try {
+			encoder.createDataField(FieldName.create("y"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+			fail();
+		} catch(IllegalStateException ise){
+			// Ignored
+		}
+	}
+
+	@Test
+	public void forkAliasedDerivedField(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.INTEGER);
+
+		DerivedField derivedField = encoder.createDerivedField(FieldName.create("a"), OpType.CONTINUOUS, DataType.INTEGER, PMMLUtil.createApply("*", new FieldRef(FieldName.create("x")), PMMLUtil.createConstant(2)));
+
+		assertSame(derivedField, encoder.createDerivedField(FieldName.create("b"), OpType.CONTINUOUS, DataType.INTEGER, PMMLUtil.createApply("*", new FieldRef(FieldName.create("x")), PMMLUtil.createConstant(2))));
+
+		encoder.freeze();
+
+		PMMLEncoder forkedEncoder = encoder.fork();
+
+		DerivedField categoricalDerivedField = (DerivedField)forkedEncoder.toCategorical(FieldName.create("b"), Arrays.asList("0", "2", "4"));
+
+		assertNotSame(derivedField, categoricalDerivedField);
+		assertSame(categoricalDerivedField, forkedEncoder.getDerivedField(FieldName.create("a")));
+		assertSame(categoricalDerivedField, forkedEncoder.getDerivedField(FieldName.create("b")));
+
+		assertEquals(OpType.CONTINUOUS, derivedField.getOpType());
+
+		List<DerivedField> derivedFields = ((forkedEncoder.encodePMML()).getTransformationDictionary()).getDerivedFields();
+
+		assertEquals(1, derivedFields.size());
+		assertEquals(OpType.CATEGORICAL, (derivedFields.get(0)).getOpType());
+	}
+
+	@Test
+	public void createName(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		FieldName name = encoder.createName("x");
+
+		assertEquals(FieldName.create("x"), name);
+		assertSame(name, encoder.createName("x"));
+
+		encoder.freeze();
+
+		PMMLEncoder forkedEncoder = encoder.fork();
+
+		assertSame(name, forkedEncoder.createName("x"));
+
+		FieldName forkedName = forkedEncoder.createName("y");
+
+		assertSame(forkedName, forkedEncoder.createName("y"));
+		assertNotSame(forkedName, (new PMMLEncoder()).createName("y"));
+	}
+
+	@Test
+	public void addDefineFunction(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		encoder.addDefineFunction(createDefineFunction("square", 2));
+		encoder.addDefineFunction(createDefineFunction("square", 2));
+
+		try {
+			encoder.addDefineFunction(createDefineFunction("square", 3));
+
+			fail();
+		} catch(IllegalArgumentException iae){
+			// Ignored
+		}
+
+		PMML pmml = encoder.encodePMML();
+
+		assertEquals(1, ((pmml.getTransformationDictionary()).getDefineFunctions()).size());
+	}
+
+	@Test
+	public void merge(){
+		PMMLEncoder leftEncoder = new PMMLEncoder();
+		PMMLEncoder rightEncoder = new PMMLEncoder();
+
+		for(PMMLEncoder encoder : Arrays.asList(leftEncoder, rightEncoder)){
+			DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.INTEGER);
+
+			((new ContinuousFeature(encoder, dataField)).toContinuousFeature(DataType.DOUBLE)).ref();
+		}
+
+		leftEncoder.createDerivedField(FieldName.create("left"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createConstant(1d));
+		rightEncoder.createDerivedField(FieldName.create("right"), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createConstant(2d));
+
+		leftEncoder.merge(rightEncoder);
+
+		assertNotNull(leftEncoder.getDerivedField(FieldName.create("right")));
+		assertEquals(2, leftEncoder.getReferenceCount(FieldName.create("double(x)")));
+
+		PMMLEncoder conflictingEncoder = new PMMLEncoder();
+		conflictingEncoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		try {
+			leftEncoder.merge(conflictingEncoder);
+
+			fail();
+		} catch(IllegalArgumentException iae){
+			// Ignored
+		}
+	}
+
+	static
+	private ContinuousFeature createDerivedFeature(PMMLEncoder encoder, String name, String function, ContinuousFeature feature){
+		DerivedField derivedField = encoder.createDerivedField(FieldName.create(name), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply(function, feature.ref()));
+
+		return new ContinuousFeature(encoder, derivedField);
+	}
+
+	/**
+	 * <p>
+	 * Creates structurally identical derived fields in the specified order,
+	 * and encodes a model that references all of them.
+	 * </p>
+	 */
+	static
+	private PMML encodeAliasedPMML(List<String> names){
+		ModelEncoder encoder = new ModelEncoder();
+
+		DataField dataField = encoder.createDataField(FieldName.create("x"), OpType.CONTINUOUS, DataType.DOUBLE);
+		DataField targetDataField = encoder.createDataField(FieldName.create("y"), OpType.CONTINUOUS, DataType.DOUBLE);
+
+		List<Feature> features = new ArrayList<>();
+
+		for(String name : names){
+			encoder.createDerivedField(FieldName.create(name), OpType.CONTINUOUS, DataType.DOUBLE, PMMLUtil.createApply("log", new FieldRef(dataField.getName())));
+
+			features.add(new ContinuousFeature(encoder, FieldName.create(name), DataType.DOUBLE));
+		}
+
+		// Sorted, so that the regression table does not depend on the order of creation
+		Collections.sort(features, (left, right) -> ((left.getName()).getValue()).compareTo((right.getName()).getValue()));
+
+		Schema schema = new Schema(new ContinuousLabel(targetDataField), features);
+
+		RegressionModel regressionModel = RegressionModelUtil.createRegression(schema.getFeatures(), Arrays.asList(1d, 2d, 3d), null, null, schema);
+
+		return encoder.encodePMML(regressionModel);
+	}
+
+	static
+	private DefineFunction createDefineFunction(String name, int power){
+		DefineFunction defineFunction = new DefineFunction()
+			.setName(name)
+			.setOpType(OpType.CONTINUOUS)
+			.setDataType(DataType.DOUBLE)
+			.addParameterFields(new ParameterField(FieldName.create("x")))
+			.setExpression(PMMLUtil.createApply("pow", new FieldRef(FieldName.create("x")), PMMLUtil.createConstant(power)));
+
+		return defineFunction;
+	}
+}
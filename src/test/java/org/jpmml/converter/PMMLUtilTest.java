@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import org.dmg.pmml.Array;
+import org.dmg.pmml.IntSparseArray;
+import org.dmg.pmml.PMMLObject;
+import org.dmg.pmml.RealSparseArray;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PMMLUtilTest {
+
+	@Test
+	public void createRealVector(){
+		double[] values = new double[100];
+		values[10] = 1.5d;
+
+		PMMLObject vector = PMMLUtil.createRealVector(new DoubleList(values), 0d);
+
+		assertTrue(vector instanceof RealSparseArray);
+
+		RealSparseArray sparseArray = (RealSparseArray)vector;
+
+		assertEquals((Integer)100, sparseArray.getN());
+		assertEquals((Integer)11, (sparseArray.getIndices()).get(0));
+		assertEquals((Double)1.5d, (sparseArray.getEntries()).get(0));
+
+		vector = PMMLUtil.createRealVector(new DoubleList(new double[]{1d, 0d, 3d}), 0d);
+
+		assertTrue(vector instanceof Array);
+		assertEquals("1.0 0.0 3.0", ((Array)vector).getValue());
+	}
+
+	@Test
+	public void createRealSparseArray(){
+		RealSparseArray sparseArray = PMMLUtil.createRealSparseArray(new float[]{0f, 0.1f, 0f}, 0d);
+
+		assertEquals((Integer)3, sparseArray.getN());
+		assertEquals((Integer)2, (sparseArray.getIndices()).get(0));
+		assertEquals((Double)0.1d, (sparseArray.getEntries()).get(0));
+	}
+
+	@Test
+	public void createIntVector(){
+		int[] values = new int[100];
+		values[99] = -7;
+
+		PMMLObject vector = PMMLUtil.createIntVector(values, 0);
+
+		assertTrue(vector instanceof IntSparseArray);
+		assertEquals((Integer)100, (((IntSparseArray)vector).getIndices()).get(0));
+
+		vector = PMMLUtil.createIntVector(new int[]{1, 2, 3}, 0);
+
+		assertTrue(vector instanceof Array);
+		assertEquals("1 2 3", ((Array)vector).getValue());
+
+		values = new int[20];
+		values[0] = -1000000;
+		values[19] = 1000000;
+
+		vector = PMMLUtil.createIntVector(values, 0);
+
+		assertTrue(vector instanceof Array);
+		assertEquals(Array.Type.INT, ((Array)vector).getType());
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.FieldName;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class SchemaTest {
+
+	@Test
+	public void toSubSchema(){
+		Schema schema = createSchema(5);
+
+		Schema subSchema = schema.toSubSchema(new int[]{4, 0, 2});
+
+		assertEquals(3, (subSchema.getFeatures()).size());
+		assertSame(schema.getFeature(4), subSchema.getFeature(0));
+		assertSame(schema.getFeature(2), subSchema.getFeature(2));
+
+		Schema subSubSchema = subSchema.toSubSchema(new int[]{2});
+
+		assertSame(schema.getFeature(2), subSubSchema.getFeature(0));
+
+		int[] indexes = {1, 3};
+
+		subSchema = schema.toSubSchema(indexes);
+
+		indexes[0] = 4;
+
+		assertSame(schema.getFeature(1), subSchema.getFeature(0));
+
+		try {
+			schema.toSubSchema(new int[]{0, 5});
+
+			fail();
+		} catch(IndexOutOfBoundsException ioobe){
+			// Ignored
+		}
+	}
+
+	@Test
+	public void toTransformedSchema(){
+		Schema schema = createSchema(5);
+
+		AtomicInteger count = new AtomicInteger();
+
+		Function<Feature, Feature> function = feature -> {
+			count.incrementAndGet();
+
+			return feature.toContinuousFeature(DataType.FLOAT);
+		};
+
+		Schema eagerSchema = schema.toTransformedSchema(function);
+
+		assertEquals(5, count.get());
+
+		count.set(0);
+
+		Schema transformedSchema = schema.toLazyTransformedSchema(function);
+
+		assertEquals(0, count.get());
+
+		Feature feature = transformedSchema.getFeature(3);
+
+		assertEquals(1, count.get());
+		assertEquals(DataType.FLOAT, feature.getDataType());
+		assertSame(feature, transformedSchema.getFeature(3));
+
+		assertEquals(1, count.get());
+
+		Schema materializedSchema = transformedSchema.toMaterializedSchema();
+
+		assertEquals(5, count.get());
+		assertEquals(transformedSchema.getFeatures(), materializedSchema.getFeatures());
+		assertEquals(eagerSchema.getFeatures(), materializedSchema.getFeatures());
+	}
+
+	@Test
+	public void indexOf(){
+		PMMLEncoder encoder = new PMMLEncoder();
+
+		FieldName x = FieldName.create("x");
+
+		List<Feature> features = Arrays.asList(
+			new BinaryFeature(encoder, x, DataType.STRING, "a"),
+			new ContinuousFeature(encoder, FieldName.create("y"), DataType.DOUBLE),
+			new BinaryFeature(encoder, x, DataType.STRING, "b")
+		);
+
+		Schema schema = new Schema(null, features);
+
+		assertEquals(Arrays.asList(0, 2), schema.indexesOf(x));
+		assertEquals(Collections.emptyList(), schema.indexesOf(FieldName.create("z")));
+		assertEquals(Arrays.asList(features.get(0), features.get(2)), schema.getFeatures(x));
+
+		assertEquals(2, schema.indexOf(new BinaryFeature(encoder, x, DataType.STRING, "b")));
+		assertEquals(-1, schema.indexOf(new BinaryFeature(encoder, x, DataType.STRING, "c")));
+
+		Schema subSchema = schema.toSubSchema(new int[]{2, 1});
+
+		assertEquals(Arrays.asList(0), subSchema.indexesOf(x));
+		assertEquals(0, subSchema.indexOf(features.get(2)));
+		assertEquals(-1, subSchema.indexOf(features.get(0)));
+	}
+
+	@Test
+	public void toParallelTransformedSchema(){
+		Schema schema = createSchema(new ConcurrentModelEncoder(), 1000);
+
+		Schema sequentialSchema = schema.toTransformedSchema(feature -> feature.toContinuousFeature(DataType.FLOAT), false);
+		Schema parallelSchema = schema.toTransformedSchema(feature -> feature.toContinuousFeature(DataType.FLOAT), true);
+
+		assertEquals(sequentialSchema.getFeatures(), parallelSchema.getFeatures());
+
+		for(int i = 0; i < 1000; i++){
+			assertSame(sequentialSchema.getFeature(i), parallelSchema.getFeature(i));
+		}
+	}
+
+	static
+	private Schema createSchema(int size){
+		return createSchema(new PMMLEncoder(), size);
+	}
+
+	static
+	private Schema createSchema(PMMLEncoder encoder, int size){
+
+		List<Feature> features = new ArrayList<>();
+
+		for(int i = 0; i < size; i++){
+			features.add(new ContinuousFeature(encoder, FieldName.create("x" + String.valueOf(i)), DataType.DOUBLE));
+		}
+
+		return new Schema(null, features);
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.transform.stream.StreamResult;
+
+import com.google.common.collect.Iterables;
+import org.dmg.pmml.DataDictionary;
+import org.dmg.pmml.DataField;
+import org.dmg.pmml.DataType;
+import org.dmg.pmml.FieldName;
+import org.dmg.pmml.Header;
+import org.dmg.pmml.MiningField;
+import org.dmg.pmml.MiningFunction;
+import org.dmg.pmml.MiningSchema;
+import org.dmg.pmml.Model;
+import org.dmg.pmml.OpType;
+import org.dmg.pmml.PMML;
+import org.dmg.pmml.mining.MiningModel;
+import org.dmg.pmml.mining.Segment;
+import org.dmg.pmml.mining.Segmentation;
+import org.dmg.pmml.regression.NumericPredictor;
+import org.dmg.pmml.regression.RegressionModel;
+import org.dmg.pmml.regression.RegressionTable;
+import org.jpmml.converter.mining.MiningModelUtil;
+import org.jpmml.model.JAXBUtil;
+import org.junit.Test;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StAXUtilTest {
+
+	@Test
+	public void writePMML() throws Exception {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+		JAXBUtil.marshalPMML(createPMML(3), new StreamResult(expected));
+
+		PMML pmml = createPMML(3);
+
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+		StAXUtil.writePMML(pmml, actual);
+
+		assertEquals(0, (pmml.getModels()).size());
+
+		checkEquals(expected.toByteArray(), actual.toByteArray());
+	}
+
+	@Test
+	public void writeLazyPMML() throws Exception {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+		JAXBUtil.marshalPMML(createPMML(3), new StreamResult(expected));
+
+		PMML pmml = createPMML(3);
+
+		Segmentation segmentation = ((MiningModel)Iterables.getOnlyElement(pmml.getModels())).getSegmentation();
+
+		List<Segment> segments = new ArrayList<>(segmentation.getSegments());
+
+		(segmentation.getSegments()).clear();
+
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+		StAXUtil.writePMML(pmml, segments.iterator(), actual);
+
+		checkEquals(expected.toByteArray(), actual.toByteArray());
+	}
+
+	static
+	private void checkEquals(byte[] expected, byte[] actual) throws Exception {
+		DocumentBuilder documentBuilder = DOMUtil.createDocumentBuilder();
+
+		Document expectedDocument = parse(documentBuilder, expected);
+		Document actualDocument = parse(documentBuilder, actual);
+
+		assertEquals(StAXUtil.getNamespaceURI(), (actualDocument.getDocumentElement()).getNamespaceURI());
+
+		assertTrue(expectedDocument.isEqualNode(actualDocument));
+	}
+
+	static
+	private PMML createPMML(int numberOfSegments){
+		FieldName x = FieldName.create("x");
+		FieldName y = FieldName.create("y");
+
+		DataDictionary dataDictionary = new DataDictionary()
+			.addDataFields(new DataField(x, OpType.CONTINUOUS, DataType.DOUBLE), new DataField(y, OpType.CONTINUOUS, DataType.DOUBLE));
+
+		List<Model> models = new ArrayList<>();
+
+		for(int i = 0; i < numberOfSegments; i++){
+			RegressionTable regressionTable = new RegressionTable(i)
+				.addNumericPredictors(new NumericPredictor(x, i + 1d));
+
+			RegressionModel regressionModel = new RegressionModel(MiningFunction.REGRESSION, createMiningSchema(x, y), null)
+				.addRegressionTables(regressionTable);
+
+			models.add(regressionModel);
+		}
+
+		MiningModel miningModel = new MiningModel(MiningFunction.REGRESSION, createMiningSchema(x, y))
+			.setSegmentation(MiningModelUtil.createSegmentation(Segmentation.MultipleModelMethod.SUM, models));
+
+		PMML pmml = new PMML("4.3", new Header(), dataDictionary)
+			.addModels(miningModel);
+
+		return pmml;
+	}
+
+	static
+	private MiningSchema createMiningSchema(FieldName activeName, FieldName targetName){
+		MiningSchema miningSchema = new MiningSchema()
+			.addMiningFields(new MiningField(targetName).setUsageType(MiningField.UsageType.TARGET), new MiningField(activeName));
+
+		return miningSchema;
+	}
+
+	static
+	private Document parse(DocumentBuilder documentBuilder, byte[] bytes) throws Exception {
+		Document document = documentBuilder.parse(new ByteArrayInputStream(bytes));
+
+		normalize(document.getDocumentElement());
+
+		return document;
+	}
+
+	/**
+	 * <p>
+	 * Removes whitespace-only text nodes and namespace declarations,
+	 * because they depend on the formatting and prefixing choices of the marshaller.
+	 * </p>
+	 */
+	static
+	private void normalize(Element element){
+		NamedNodeMap attributes = element.getAttributes();
+
+		for(int i = attributes.getLength() - 1; i > -1; i--){
+			Node attribute = attributes.item(i);
+
+			if(("xmlns").equals(attribute.getNodeName()) || ("xmlns").equals(attribute.getPrefix())){
+				element.removeAttributeNode((Attr)attribute);
+			}
+		}
+
+		NodeList childNodes = element.getChildNodes();
+
+		for(int i = childNodes.getLength() - 1; i > -1; i--){
+			Node childNode = childNodes.item(i);
+
+			switch(childNode.getNodeType()){
+				case Node.TEXT_NODE:
+					if(((childNode.getNodeValue()).trim()).isEmpty()){
+						element.removeChild(childNode);
+					}
+					break;
+				case Node.ELEMENT_NODE:
+					normalize((Element)childNode);
+					break;
+				default:
+					break;
+			}
+		}
+	}
+}
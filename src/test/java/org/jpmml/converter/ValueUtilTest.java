@@ -18,13 +18,16 @@
  */
 package org.jpmml.converter;
 
+import java.nio.DoubleBuffer;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Random;
 
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -65,6 +68,49 @@ public class ValueUtilTest {
 
 		assertTrue(ValueUtil.equals(-0d, 0f));
 		assertTrue(ValueUtil.equals(0d, 0f));
+
+		assertTrue(ValueUtil.equals(Double.NaN, Double.NaN));
+		assertTrue(ValueUtil.equals((Number)Float.NaN, (Number)Double.NaN));
+		assertTrue(ValueUtil.equals((Number)(-0d), (Number)0f));
+
+		assertFalse(ValueUtil.equals(Double.NaN, 0d));
+		assertFalse(ValueUtil.isZero(Double.NaN));
+	}
+
+	@Test
+	public void formatValue(){
+		assertEquals("1", ValueUtil.formatValue(1));
+
+		assertEquals("0.0", ValueUtil.formatValue(0d));
+		assertEquals("-0.0", ValueUtil.formatValue(-0d));
+		assertEquals("1.0", ValueUtil.formatValue(1d));
+		assertEquals("0.001", ValueUtil.formatValue(1e-3));
+		assertEquals("1.0E-4", ValueUtil.formatValue(1e-4));
+		assertEquals("9999999.0", ValueUtil.formatValue(9999999d));
+		assertEquals("1.0E7", ValueUtil.formatValue(1e7));
+		assertEquals("-123.456", ValueUtil.formatValue(-123.456d));
+		assertEquals("1.0E23", ValueUtil.formatValue(1e23));
+		assertEquals("2.82879384806159E17", ValueUtil.formatValue(2.82879384806159E17));
+		assertEquals("4.9E-324", ValueUtil.formatValue(Double.MIN_VALUE));
+		assertEquals("1.7976931348623157E308", ValueUtil.formatValue(Double.MAX_VALUE));
+		assertEquals("NaN", ValueUtil.formatValue(Double.NaN));
+		assertEquals("-Infinity", ValueUtil.formatValue(Double.NEGATIVE_INFINITY));
+
+		assertEquals("0.1", ValueUtil.formatValue(0.1f));
+		assertEquals("1.1754944E-38", ValueUtil.formatValue(Float.MIN_NORMAL));
+		assertEquals("3.4028235E38", ValueUtil.formatValue(Float.MAX_VALUE));
+
+		Random random = new Random(42L);
+
+		for(int i = 0; i < 10000; i++){
+			double value = Double.longBitsToDouble(random.nextLong());
+
+			if(Double.isNaN(value)){
+				continue;
+			}
+
+			assertEquals(value, Double.parseDouble(ValueUtil.formatValue(value)), 0d);
+		}
 	}
 
 	@Test
@@ -76,6 +122,18 @@ public class ValueUtilTest {
 
 		assertEquals("1 2 3", ValueUtil.formatArray(Arrays.asList(1, 2, 3)));
 		assertEquals("1.0 2.0 3.0", ValueUtil.formatArray(Arrays.asList(1d, 2d, 3d)));
+
+		assertEquals("", ValueUtil.formatArray(new int[0]));
+		assertEquals("1 -2 3", ValueUtil.formatArray(new int[]{1, -2, 3}));
+		assertEquals("0.1 -2.0 3.0E-5", ValueUtil.formatArray(new float[]{0.1f, -2f, 3e-5f}));
+		assertEquals("0.1 -2.0 3.0E-5", ValueUtil.formatArray(new double[]{0.1d, -2d, 3e-5d}));
+
+		DoubleBuffer buffer = DoubleBuffer.wrap(new double[]{1d, 2d, 3d, 4d});
+		buffer.position(1);
+		buffer.limit(3);
+
+		assertEquals("2.0 3.0", ValueUtil.formatArray(buffer));
+		assertEquals(1, buffer.position());
 	}
 
 	@Test
@@ -101,4 +159,37 @@ public class ValueUtilTest {
 			// Ignored
 		}
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void asDoubles(){
+		DoubleList values = ValueUtil.asDoubles(Arrays.asList(1, 2f, 3d));
+
+		assertEquals(Arrays.asList(1d, 2d, 3d), values);
+		assertEquals(3d, values.getDouble(2), 0d);
+		assertSame(values, ValueUtil.asDoubles(values));
+
+		DoubleList subValues = values.subList(1, 3);
+
+		assertEquals(Arrays.asList(2d, 3d), subValues);
+		assertEquals("2.0 3.0", ValueUtil.formatArray(subValues));
+	}
+
+	@Test
+	public void floatsToDoubles(){
+		assertEquals((Double)0.1d, ValueUtil.floatToDouble((Float)0.1f));
+
+		Random random = new Random(42L);
+
+		float[] values = new float[10000];
+
+		for(int i = 0; i < values.length; i++){
+			values[i] = (float)(random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10));
+		}
+
+		DoubleList doubleValues = ValueUtil.floatsToDoubles(values);
+
+		for(int i = 0; i < values.length; i++){
+			assertEquals(Double.parseDouble(ValueUtil.formatValue(values[i])), doubleValues.getDouble(i), 0d);
+		}
+	}
+}
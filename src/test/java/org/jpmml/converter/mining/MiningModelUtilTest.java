@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2017 Villu Ruusmann
+ *
+ * This file is part of JPMML-Converter
+ *
+ * JPMML-Converter is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JPMML-Converter is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with JPMML-Converter.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpmml.converter.mining;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.Iterables;
+import org.dmg.pmml.Extension;
+import org.dmg.pmml.FieldName;
+import org.dmg.pmml.MiningFunction;
+import org.dmg.pmml.MiningSchema;
+import org.dmg.pmml.Target;
+import org.dmg.pmml.Targets;
+import org.dmg.pmml.mining.MiningModel;
+import org.dmg.pmml.mining.Segment;
+import org.dmg.pmml.mining.Segmentation;
+import org.dmg.pmml.regression.RegressionModel;
+import org.dmg.pmml.regression.RegressionTable;
+import org.jpmml.converter.ModelUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class MiningModelUtilTest {
+
+	@Test
+	public void mergeModels(){
+		List<MiningModel> miningModels = Arrays.asList(createMiningModel(2), createMiningModel(1));
+
+		MiningModel firstMiningModel = miningModels.get(0);
+
+		MiningModel miningModel = MiningModelUtil.mergeModels(miningModels);
+
+		assertEquals("ensemble", miningModel.getModelName());
+		assertEquals("sum", miningModel.getAlgorithmName());
+		assertSame(firstMiningModel.getMiningSchema(), miningModel.getMiningSchema());
+		assertSame(firstMiningModel.getTargets(), miningModel.getTargets());
+
+		Segmentation segmentation = miningModel.getSegmentation();
+
+		assertEquals("sum", (Iterables.getOnlyElement(segmentation.getExtensions())).getValue());
+
+		List<Segment> segments = segmentation.getSegments();
+
+		assertEquals(3, segments.size());
+
+		for(int i = 0; i < segments.size(); i++){
+			Segment segment = segments.get(i);
+
+			assertEquals(String.valueOf(i + 1), segment.getId());
+		}
+	}
+
+	@Test
+	public void mergeConflictingModels(){
+		MiningModel conflictingMiningModel = createMiningModel(1);
+		(conflictingMiningModel.getMiningSchema()).addMiningFields(ModelUtil.createMiningField(FieldName.create("x")));
+
+		checkNotMergeable(createMiningModel(1), conflictingMiningModel);
+
+		conflictingMiningModel = createMiningModel(1)
+			.setModelName("other");
+
+		checkNotMergeable(createMiningModel(1), conflictingMiningModel);
+
+		conflictingMiningModel = createMiningModel(1)
+			.setTargets(null);
+
+		checkNotMergeable(createMiningModel(1), conflictingMiningModel);
+
+		conflictingMiningModel = createMiningModel(1);
+		(conflictingMiningModel.getSegmentation()).addExtensions(new Extension().setName("origin").setValue("other"));
+
+		checkNotMergeable(createMiningModel(1), conflictingMiningModel);
+
+		conflictingMiningModel = createMiningModel(1)
+			.setSegmentation(null);
+
+		checkNotMergeable(createMiningModel(1), conflictingMiningModel);
+	}
+
+	@Test
+	public void mergeRejectedModels(){
+		MiningModel firstMiningModel = createMiningModel(2);
+		MiningModel secondMiningModel = createMiningModel(1);
+		MiningModel conflictingMiningModel = createMiningModel(1)
+			.setModelName("other");
+
+		checkNotMergeable(firstMiningModel, secondMiningModel, conflictingMiningModel);
+
+		assertEquals(2, ((firstMiningModel.getSegmentation()).getSegments()).size());
+		assertEquals(1, ((secondMiningModel.getSegmentation()).getSegments()).size());
+		assertEquals(1, ((conflictingMiningModel.getSegmentation()).getSegments()).size());
+	}
+
+	static
+	private void checkNotMergeable(MiningModel... miningModels){
+
+		try {
+			MiningModelUtil.mergeModels(Arrays.asList(miningModels));
+
+			fail();
+		} catch(IllegalArgumentException iae){
+			// Ignored
+		}
+	}
+
+	static
+	private MiningModel createMiningModel(int size){
+		RegressionModel[] regressionModels = new RegressionModel[size];
+
+		for(int i = 0; i < size; i++){
+			regressionModels[i] = new RegressionModel(MiningFunction.REGRESSION, new MiningSchema(), Collections.singletonList(new RegressionTable(i)));
+		}
+
+		Targets targets = new Targets()
+			.addTargets(new Target().setField(FieldName.create("y")).setRescaleFactor(2d));
+
+		MiningModel miningModel = new MiningModel(MiningFunction.REGRESSION, new MiningSchema())
+			.setModelName("ensemble")
+			.setAlgorithmName("sum")
+			.setTargets(targets)
+			.setSegmentation(MiningModelUtil.createSegmentation(Segmentation.MultipleModelMethod.SUM, Arrays.asList(regressionModels)));
+
+		(miningModel.getSegmentation()).addExtensions(new Extension().setName("aggregation").setValue("sum"));
+
+		return miningModel;
+	}
+}
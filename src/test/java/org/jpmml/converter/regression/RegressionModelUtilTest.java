@@ -18,18 +18,29 @@
  */
 package org.jpmml.converter.regression;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import com.google.common.collect.Iterables;
+import org.dmg.pmml.DataType;
 import org.dmg.pmml.FieldName;
 import org.dmg.pmml.FieldRef;
+import org.dmg.pmml.MathContext;
+import org.dmg.pmml.regression.CategoricalPredictor;
 import org.dmg.pmml.regression.NumericPredictor;
 import org.dmg.pmml.regression.PredictorTerm;
 import org.dmg.pmml.regression.RegressionTable;
+import org.jpmml.converter.BinaryFeature;
+import org.jpmml.converter.BinaryFeatureList;
+import org.jpmml.converter.CategoricalFeature;
+import org.jpmml.converter.CompositeFeatureList;
+import org.jpmml.converter.ContinuousFeature;
 import org.jpmml.converter.Feature;
+import org.jpmml.converter.HashingSchema;
 import org.jpmml.converter.ModelEncoder;
 import org.jpmml.converter.SchemaUtil;
+import org.jpmml.converter.ValueUtil;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -77,6 +88,110 @@ public class RegressionModelUtilTest {
 		assertEquals(FieldName.create("x2"), (fieldRefs.get(1)).getField());
 	}
 
+	@Test
+	public void createBinaryRegressionTable(){
+		ModelEncoder encoder = new ModelEncoder();
+
+		CategoricalFeature categoricalFeature = new CategoricalFeature(encoder, FieldName.create("x"), DataType.STRING, Arrays.asList("a", "b", "c"));
+
+		BinaryFeatureList binaryFeatures = categoricalFeature.getBinaryFeatures();
+
+		assertEquals(3, binaryFeatures.size());
+		assertEquals("b", (binaryFeatures.get(1)).getValue());
+
+		RegressionTable regressionTable = RegressionModelUtil.createRegressionTable(binaryFeatures, Arrays.asList(1d, 0d, 3d), null);
+
+		assertState(regressionTable, 0d, false, true, false);
+
+		List<CategoricalPredictor> categoricalPredictors = regressionTable.getCategoricalPredictors();
+
+		assertEquals(2, categoricalPredictors.size());
+
+		CategoricalPredictor categoricalPredictor = categoricalPredictors.get(1);
+
+		assertEquals(FieldName.create("x"), categoricalPredictor.getName());
+		assertEquals("c", categoricalPredictor.getValue());
+		assertEquals((Double)3d, (Double)categoricalPredictor.getCoefficient());
+
+		assertEquals(2, encoder.getReferenceCount(FieldName.create("x")));
+	}
+
+	@Test
+	public void createCompositeRegressionTable(){
+		ModelEncoder encoder = new ModelEncoder();
+
+		CategoricalFeature categoricalFeature = new CategoricalFeature(encoder, FieldName.create("x"), DataType.STRING, Arrays.asList("a", "b"));
+
+		// Binary features must not be created
+		BinaryFeatureList binaryFeatures = new BinaryFeatureList(categoricalFeature){
+
+			@Override
+			public BinaryFeature get(int index){
+				throw new UnsupportedOperationException();
+			}
+		};
+
+		Feature feature = new ContinuousFeature(encoder, FieldName.create("y"), DataType.DOUBLE);
+
+		List<Feature> features = new CompositeFeatureList(Arrays.asList(Collections.singletonList(feature), Collections.<Feature>emptyList(), binaryFeatures));
+
+		assertEquals(3, features.size());
+		assertEquals(feature, features.get(0));
+
+		RegressionTable regressionTable = RegressionModelUtil.createRegressionTable(features, Arrays.asList(1d, 2d, 3d), null);
+
+		assertState(regressionTable, 0d, true, true, false);
+
+		List<CategoricalPredictor> categoricalPredictors = regressionTable.getCategoricalPredictors();
+
+		assertEquals(2, categoricalPredictors.size());
+
+		CategoricalPredictor categoricalPredictor = categoricalPredictors.get(1);
+
+		assertEquals(FieldName.create("x"), categoricalPredictor.getName());
+		assertEquals("b", categoricalPredictor.getValue());
+		assertEquals((Double)3d, (Double)categoricalPredictor.getCoefficient());
+	}
+
+	@Test
+	public void createSparseRegressionTable(){
+		ModelEncoder encoder = new ModelEncoder();
+
+		HashingSchema schema = new HashingSchema(null, String::hashCode, 1 << 24, bucket -> new ContinuousFeature(encoder, FieldName.create("hash[" + bucket + "]"), DataType.DOUBLE));
+
+		int bucket = schema.getBucket("hello");
+
+		RegressionTable regressionTable = RegressionModelUtil.createRegressionTable(schema.getFeatures(), new int[]{bucket, 7}, new double[]{2d, 0d}, null);
+
+		assertState(regressionTable, 0d, true, false, false);
+
+		NumericPredictor numericPredictor = Iterables.getOnlyElement(regressionTable.getNumericPredictors());
+
+		assertEquals(FieldName.create("hash[" + bucket + "]"), numericPredictor.getName());
+
+		assertEquals(1, schema.getNumberOfMaterializedBuckets());
+	}
+
+	@Test
+	public void createFloatRegressionTable(){
+		ModelEncoder encoder = new ModelEncoder();
+
+		List<Feature> features = Arrays.asList(new ContinuousFeature(encoder, FieldName.create("x"), DataType.FLOAT), SchemaUtil.createConstantFeature(encoder, 1d));
+		List<Double> coefficients = Arrays.asList(1d / 3d, 0.2d);
+
+		RegressionTable regressionTable = RegressionModelUtil.createRegressionTable(features, coefficients, 0.1d);
+
+		assertState(regressionTable, 0.1d + 0.2d, true, false, false);
+
+		regressionTable = RegressionModelUtil.createRegressionTable(MathContext.FLOAT, features, coefficients, 0.1d);
+
+		assertState(regressionTable, 0.3d, true, false, false);
+
+		NumericPredictor numericPredictor = Iterables.getOnlyElement(regressionTable.getNumericPredictors());
+
+		assertEquals("0.33333334", ValueUtil.formatValue(numericPredictor.getCoefficient()));
+	}
+
 	static
 	private void assertState(RegressionTable regressionTable, double intercept, boolean hasNumericTerms, boolean hasCategoricalTerms, boolean hasInteractionTerms){
 		assertEquals((Double)intercept, (Double)regressionTable.getIntercept());